@@ -0,0 +1,46 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.parser.IncrementalParser;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing with full LL prediction against SLL prediction with an LL fallback, on sheets whose
+ * expressions get longer and longer:
+ * mvn -P benchmark compile exec:exec -Djmh.args="ParserBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"1", "4", "16", "64"})
+    public int expressionLength;
+
+    @Param({"1000"})
+    public int rules;
+
+    public String text;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        text = new WorkloadGenerator().rules(rules).expressionLength(expressionLength).generate();
+    }
+
+    @Benchmark
+    public AST ll() {
+        return new IncrementalParser(new BaseErrorListener(), false).parse(text);
+    }
+
+    @Benchmark
+    public AST sllThenLl() {
+        return new IncrementalParser(new BaseErrorListener(), true).parse(text);
+    }
+}
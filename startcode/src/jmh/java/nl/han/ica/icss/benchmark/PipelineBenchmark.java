@@ -0,0 +1,246 @@
+package nl.han.ica.icss.benchmark;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.VariableManager;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Performance of every pipeline stage in isolation. Run with the gc profiler to see the allocation rate:
+ * mvn -P benchmark compile exec:exec -Djmh.args="PipelineBenchmark -prof gc"
+ *
+ * The checker sets errors on the tree and the evaluator rewrites it in place, so every call of those stages needs
+ * a freshly parsed tree. They are timed as batches of single calls instead, with the trees of a whole batch parsed
+ * before it starts, so neither the timing nor the allocations include the parsing. The stages report the time of
+ * a single call, on the small inputs averaged over a batch of BATCH_SIZE calls.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    public static final String SYNTHETIC_PREFIX = "synthetic-";
+
+    //Calls of a stage timed together on the small inputs, a single call takes a few microseconds there
+    public static final int BATCH_SIZE = 100;
+
+    @State(Scope.Benchmark)
+    public static class Source {
+
+        @Param({"level0.icss", "level1.icss", "level2.icss", "level3.icss",
+                "synthetic-1000", "synthetic-10000", "synthetic-100000"})
+        public String input;
+
+        public String text;
+
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            text = loadInput(input);
+        }
+    }
+
+    /**
+     * A batch of freshly parsed trees, every call takes the next one
+     */
+    @State(Scope.Thread)
+    public static class FreshSources {
+
+        //A batch of copies of the largest one still fits in a default heap
+        @Param({"level0.icss", "level1.icss", "level2.icss", "level3.icss", "synthetic-1000"})
+        public String input;
+
+        private String text;
+        private final AST[] copies = new AST[BATCH_SIZE];
+        private int next;
+
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            text = loadInput(input);
+        }
+
+        @Setup(Level.Iteration)
+        public void parseBatch() {
+            for (int i = 0; i < copies.length; i++) copies[i] = parse(text);
+            next = 0;
+        }
+
+        public AST next() {
+            AST ast = copies[next];
+            copies[next++] = null;
+            return ast;
+        }
+    }
+
+    /**
+     * A single freshly parsed tree, a stage takes milliseconds on these inputs and is timed one call at a time
+     */
+    @State(Scope.Thread)
+    public static class LargeFreshSource {
+
+        @Param({"synthetic-10000", "synthetic-100000"})
+        public String input;
+
+        private String text;
+        public AST ast;
+
+        @Setup(Level.Trial)
+        public void load() throws IOException {
+            text = loadInput(input);
+        }
+
+        @Setup(Level.Iteration)
+        public void parseAgain() {
+            ast = parse(text);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TransformedSource extends Source {
+
+        public AST ast;
+
+        @Setup(Level.Trial)
+        public void transformOnce() {
+            ast = parse(text);
+            new Evaluator().apply(ast);
+        }
+    }
+
+    @Benchmark
+    public AST parse(Source source) {
+        return parse(source.text);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 50, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 50, batchSize = BATCH_SIZE)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public AST check(FreshSources source) {
+        return check(source.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public AST checkLarge(LargeFreshSource source) {
+        return check(source.ast);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 50, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 50, batchSize = BATCH_SIZE)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public AST transform(FreshSources source) {
+        return transform(source.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public AST transformLarge(LargeFreshSource source) {
+        return transform(source.ast);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 50, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 50, batchSize = BATCH_SIZE)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public AST checkThenTransform(FreshSources source) {
+        return checkThenTransform(source.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public AST checkThenTransformLarge(LargeFreshSource source) {
+        return checkThenTransform(source.ast);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 50, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 50, batchSize = BATCH_SIZE)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public AST checkAndTransform(FreshSources source) {
+        return checkAndTransform(source.next());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public AST checkAndTransformLarge(LargeFreshSource source) {
+        return checkAndTransform(source.ast);
+    }
+
+    @Benchmark
+    public String generate(TransformedSource source) {
+        return new Generator().generate(source.ast);
+    }
+
+    private static AST parse(String text) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(text);
+        return pipeline.getAST();
+    }
+
+    private static AST check(AST ast) {
+        new Checker().check(ast);
+        return ast;
+    }
+
+    private static AST transform(AST ast) {
+        new Evaluator().apply(ast);
+        return ast;
+    }
+
+    private static AST checkThenTransform(AST ast) {
+        new Checker().check(ast);
+        new Evaluator().apply(ast);
+        return ast;
+    }
+
+    private static AST checkAndTransform(AST ast) {
+        VariableManager varManager = new VariableManager();
+        new Evaluator(varManager).checkAndApply(ast, new Checker(varManager));
+        return ast;
+    }
+
+    private static String loadInput(String input) throws IOException {
+        return input.startsWith(SYNTHETIC_PREFIX)
+                ? new WorkloadGenerator().rules(Integer.parseInt(input.substring(SYNTHETIC_PREFIX.length()))).generate()
+                : loadResource(input);
+    }
+
+    private static String loadResource(String name) throws IOException {
+        try (InputStream in = PipelineBenchmark.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IOException("Missing benchmark resource " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
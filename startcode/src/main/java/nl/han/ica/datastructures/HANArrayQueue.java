@@ -0,0 +1,87 @@
+package nl.han.ica.datastructures;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Queue on a circular array. Enqueue and dequeue are amortized O(1): dequeuing only moves
+ * the head index and the array doubles when it is full, without a node per element.
+ */
+public class HANArrayQueue<T> implements IHANQueue<T> {
+
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    public HANArrayQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public HANArrayQueue(int initialCapacity) {
+        elements = new Object[Math.max(1, initialCapacity)];
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) elements[index(i)] = null;
+        head = 0;
+        size = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void enqueue(T value) {
+        if (size == elements.length) grow();
+
+        elements[index(size)] = value;
+        size++;
+    }
+
+    @Override
+    public T dequeue() {
+        T value = peek();
+
+        //Release the slot so the queue does not keep dequeued values alive
+        elements[head] = null;
+        head = index(1);
+        size--;
+
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        if (size == 0) throw new NoSuchElementException("Queue is empty");
+
+        return (T) elements[head];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return elements.length;
+    }
+
+    private int index(int offset) {
+        return (head + offset) % elements.length;
+    }
+
+    private void grow() {
+        Object[] grown = new Object[elements.length * 2];
+
+        //Unwrap the ring so the head ends up at index 0 again
+        for (int i = 0; i < size; i++) grown[i] = elements[index(i)];
+
+        elements = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,135 @@
+package nl.han.ica.datastructures;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed capacity circular-array queue that can be shared between threads, e.g. to hand work
+ * from one pipeline stage to the next. put and take block until there is room or an element,
+ * the IHANQueue methods never block and fail instead.
+ */
+public class HANBoundedQueue<T> implements IHANQueue<T> {
+
+    private final HANArrayQueue<T> elements;
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    public HANBoundedQueue(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+        this.capacity = capacity;
+        this.elements = new HANArrayQueue<>(capacity);
+    }
+
+    /**
+     * Adds value to the back of the queue, waiting for room when the queue is full
+     * @param value value to add
+     */
+    public void put(T value) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (elements.getSize() == capacity) notFull.await();
+
+            elements.enqueue(value);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Dequeues value at the front of the queue, waiting for one when the queue is empty
+     * @return value T at the front of the queue
+     */
+    public T take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (elements.isEmpty()) notEmpty.await();
+
+            T value = elements.dequeue();
+            notFull.signal();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            elements.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    /**
+     * Adds value to the back of the queue without waiting
+     * @param value value to add
+     * @throws IllegalStateException when the queue is full
+     */
+    @Override
+    public void enqueue(T value) {
+        lock.lock();
+        try {
+            if (elements.getSize() == capacity) throw new IllegalStateException("Queue is full");
+
+            elements.enqueue(value);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Dequeues value at the front of the queue without waiting
+     * @return value T at the front of the queue
+     * @throws NoSuchElementException when the queue is empty
+     */
+    @Override
+    public T dequeue() {
+        lock.lock();
+        try {
+            T value = elements.dequeue();
+            notFull.signal();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public T peek() {
+        lock.lock();
+        try {
+            return elements.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        lock.lock();
+        try {
+            return elements.getSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -1,108 +1,145 @@
 package nl.han.ica.datastructures;
 
-public class HANLinkedList<T> implements IHANLinkedList{
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+public class HANLinkedList<T> implements IHANLinkedList<T> {
 
     private Node<T> head;
+    private Node<T> tail;
+    private int size;
 
     @Override
-    public void addFirst(Object value) {
-
-        if(head == null){
-            head = new Node<T>((T) value);
-        } else {
-            Node<T> newNode = new Node<T>((T) value);
-            newNode.previous = head;
-            head = newNode;
-        }
+    public void addFirst(T value) {
+
+        Node<T> newNode = new Node<T>(value);
+        newNode.previous = head;
+        head = newNode;
+
+        if (tail == null) tail = newNode;
+        size++;
+    }
+
+    @Override
+    public void addLast(T value) {
+
+        if (head == null) { addFirst(value); return; }
+
+        Node<T> newNode = new Node<T>(value);
+        tail.previous = newNode;
+        tail = newNode;
+        size++;
     }
 
     @Override
     public void clear() {
         head = null;
+        tail = null;
+        size = 0;
     }
 
     @Override
-    public void insert(int index, Object value) {
+    public void insert(int index, T value) {
 
         if (index == 0) { addFirst(value); return; }
 
-        Node<T> lastNode = head;
-        Node<T> currentNode = head.previous;
-        Node<T> newNode = new Node<T>((T) value);
-
-        for (int i = 1; i <= index; i++){
-            if(i == index){
-                newNode.previous = currentNode;
-                lastNode.previous = newNode;
-                break;
-            }
+        if (index >= size) { addLast(value); return; } // If the index is higher than the length put it at the end.
 
-            lastNode = currentNode;
+        Node<T> lastNode = nodeAt(index - 1);
+        Node<T> newNode = new Node<T>(value);
 
-            if(currentNode.previous == null){ // If the index is higher than the length.
-                lastNode.previous = newNode; break; // Put it at the end of the list.
-            }
-
-            currentNode = currentNode.previous;
-        }
+        newNode.previous = lastNode.previous;
+        lastNode.previous = newNode;
+        size++;
     }
 
     @Override
     public void delete(int pos) {
 
-        if(pos == 0){ head = head.previous; return; }
+        if (pos == 0) { removeFirst(); return; }
 
-        Node<T> lastNode = head;
-        Node<T> currentNode = head.previous;
+        if (pos >= size) return;
 
-        for(int i = 1; i <= pos; i++){
-            if(i == pos){
-                lastNode.previous = currentNode.previous;
-            }
+        Node<T> lastNode = nodeAt(pos - 1);
+        Node<T> deleted = lastNode.previous;
 
-            lastNode = currentNode;
-            currentNode = currentNode.previous;
-        }
+        lastNode.previous = deleted.previous;
+        if (deleted == tail) tail = lastNode;
+        size--;
     }
 
     @Override
-    public Object get(int pos) {
-
-        if (pos == 0){ return head.data; }
+    public T get(int pos) {
 
-        Node<T> currentNode = head.previous;
-
-        for (int i = 1; i < pos; i++) {
-            currentNode = currentNode.previous;
-        }
+        if (size > 0 && pos == size - 1) return tail.data;
 
-        return currentNode.data;
+        return nodeAt(pos).data;
     }
 
     @Override
     public void removeFirst() {
         head = head.previous;
+
+        if (head == null) tail = null;
+        size--;
     }
 
     @Override
-    public Object getFirst() {
+    public T getFirst() {
         return head.data;
     }
 
+    @Override
+    public T getLast() {
+        return tail.data;
+    }
+
     @Override
     public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            private Node<T> next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
 
-        if (head == null) return 0;
+            @Override
+            public T next() {
+                if (next == null) throw new NoSuchElementException();
+
+                T value = next.data;
+                next = next.previous;
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        for (Node<T> currentNode = head; currentNode != null; currentNode = currentNode.previous) {
+            action.accept(currentNode.data);
+        }
+    }
+
+    private Node<T> nodeAt(int pos) {
+
+        if (pos < 0 || pos >= size) throw new IndexOutOfBoundsException("Index: " + pos + ", Size: " + size);
 
-        int count = 1;
         Node<T> currentNode = head;
 
-        while(currentNode.previous != null){
-            count++;
+        for (int i = 0; i < pos; i++) {
             currentNode = currentNode.previous;
         }
 
-        return count;
+        return currentNode;
     }
 
     static class Node<T> {
@@ -115,4 +152,3 @@ public class HANLinkedList<T> implements IHANLinkedList{
         private Node<T> previous;
     }
 }
-
@@ -1,12 +1,21 @@
 package nl.han.ica.datastructures;
 
-public interface IHANLinkedList<T> {
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+public interface IHANLinkedList<T> extends Iterable<T> {
     /**
      * Adds value to the front of the list
      * @param value generic value to be added
      */
     void addFirst(T value);
 
+    /**
+     * Adds value to the end of the list in O(1) time
+     * @param value generic value to be added
+     */
+    void addLast(T value);
+
     /**
      * Clears list. Size equals 0 afterwards
      */
@@ -38,14 +47,33 @@ public interface IHANLinkedList<T> {
     void removeFirst();
 
     /**
-     * Returns first element in O(n) time
+     * Returns first element in O(1) time
      * @return first element
      */
     T getFirst();
 
     /**
-     * Determines size of the list, equals the number of stored items but not the header node
+     * Returns last element in O(1) time
+     * @return last element
+     */
+    T getLast();
+
+    /**
+     * Determines size of the list in O(1) time, equals the number of stored items but not the header node
      * @return number of items in list
      */
     int getSize();
+
+    /**
+     * Returns an iterator that walks the list from the first to the last element, so traversing
+     * the whole list takes one pass instead of a get(pos) walk per element
+     * @return iterator over the values in list order
+     */
+    Iterator<T> iterator();
+
+    /**
+     * Performs the action for every element, from the first to the last
+     * @param action the action to perform
+     */
+    void forEach(Consumer<? super T> action);
 }
@@ -0,0 +1,145 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ArenaAST;
+import nl.han.ica.icss.ast.Stylesheet;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.checker.VariableManager;
+import nl.han.ica.icss.gen.ICSSBaseListener;
+import nl.han.ica.icss.gen.ICSSParser;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ArenaASTListener;
+import nl.han.ica.icss.parser.ParserFactory;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a stylesheet held in an ArenaAST. The whole sheet stays in the compact arena, every top-level
+ * statement is turned into ASTNodes just before it is checked, evaluated and written out, and dropped afterwards.
+ * Only the global variables are kept between statements, like the StreamingCompiler does.
+ *
+ * The reported errors and the CSS of a clean sheet are the same as with the Pipeline.
+ * When there are errors, the output holds the CSS of the statements before the first one.
+ */
+public class ArenaCompiler {
+
+    /**
+     * Parses the text into an arena. The parse tree of every top-level statement is dropped once it is
+     * in the arena, so neither the parse tree nor ASTNodes of the whole sheet are ever built.
+     * @param syntaxErrors receives the syntax errors, the arena is incomplete when there are any
+     */
+    public static ArenaAST parse(String source, List<String> syntaxErrors) {
+        ArenaAST arena = ParserFactory.parse(source, (lexer, parser) -> {
+            ANTLRErrorListener errorListener = new BaseErrorListener() {
+                @Override
+                public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                        int charPositionInLine, String msg, RecognitionException e) {
+                    syntaxErrors.add("Syntax error: " + msg);
+                }
+            };
+            lexer.addErrorListener(errorListener);
+            parser.addErrorListener(errorListener);
+
+            StatementEncoder encoder = new StatementEncoder(syntaxErrors);
+            parser.addParseListener(encoder);
+            try {
+                parser.stylesheet();
+            } catch (RuntimeException e) {
+                //A failure of the encoder is what went wrong, not what the parser ran into after it
+                throw encoder.failure != null ? encoder.failure : e;
+            }
+            return encoder.arenaListener.getArena();
+        });
+
+        arena.trimToSize();
+        return arena;
+    }
+
+    /**
+     * @param output receives the CSS of every statement as soon as it is compiled
+     * @return the syntax errors, or when there are none the semantic errors of the sheet
+     */
+    public List<String> compile(String source, Writer output) throws IOException {
+        List<String> syntaxErrors = new ArrayList<>();
+        ArenaAST arena = parse(source, syntaxErrors);
+
+        return syntaxErrors.isEmpty() ? compile(arena, output) : syntaxErrors;
+    }
+
+    /**
+     * @param output receives the CSS of every statement as soon as it is compiled
+     * @return the semantic errors of the sheet
+     */
+    public List<String> compile(ArenaAST arena, Writer output) throws IOException {
+        List<String> semanticErrors = new ArrayList<>();
+        if (arena.size() == 0) return semanticErrors;
+
+        VariableManager varManager = new VariableManager();
+        Checker checker = new Checker(varManager);
+        Evaluator evaluator = new Evaluator(varManager);
+        Generator generator = new Generator();
+
+        for (int node = arena.firstChild(arena.root()); node != ArenaAST.NONE; node = arena.nextSibling(node)) {
+            AST statement = new AST(new Stylesheet());
+            statement.root.addChild(arena.toNode(node));
+
+            evaluator.checkAndApply(statement, checker);
+            for (SemanticError error : statement.getErrors()) semanticErrors.add(error.toString());
+
+            if (semanticErrors.isEmpty()) generator.generate(statement, output);
+
+            varManager.compact();
+        }
+        return semanticErrors;
+    }
+
+    /*
+     Runs as a parse listener. Each time the parser exits a top-level statement the statement's subtree is
+     added to the arena and removed from the parse tree again.
+     */
+    private static class StatementEncoder extends ICSSBaseListener {
+
+        private final List<String> syntaxErrors;
+        private final ArenaASTListener arenaListener = new ArenaASTListener();
+        private final IterativeParseTreeWalker walker = new IterativeParseTreeWalker();
+        //The exception encoding a statement failed with, rethrown by parse whatever the parser does next
+        private RuntimeException failure = null;
+
+        StatementEncoder(List<String> syntaxErrors) {
+            this.syntaxErrors = syntaxErrors;
+        }
+
+        @Override
+        public void enterStylesheet(ICSSParser.StylesheetContext ctx) {
+            arenaListener.enterStylesheet(ctx);
+        }
+
+        @Override
+        public void exitEveryRule(ParserRuleContext ctx) {
+            if (!(ctx.getParent() instanceof ICSSParser.StylesheetContext)) return;
+
+            //When encoding the statement fails the parser exits the rule again on its way out, it was removed already
+            List<ParseTree> statements = ctx.getParent().children;
+            if (statements == null || statements.isEmpty() || statements.get(statements.size() - 1) != ctx) return;
+            ctx.getParent().removeLastChild();
+
+            //The listener cannot build every broken statement and the errors are all that is reported
+            if (!syntaxErrors.isEmpty()) return;
+
+            try {
+                walker.walk(arenaListener, ctx);
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.VariableAssignment;
+import nl.han.ica.icss.checker.DependencyGraph;
+import nl.han.ica.icss.checker.VariableManager;
+import nl.han.ica.icss.checker.VariableState;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transforms and generates a checked stylesheet while reusing the CSS of the rules that did not change
+ * since the last compilation. A rule is reused when its text is the same and every variable it uses
+ * (see {@link DependencyGraph}) resolves to the same value and type as last time. The variables a reused
+ * rule assigns are set to what its evaluation left them at, so a changed variable propagates through
+ * every rule that depends on it, directly or through other variables.
+ *
+ * Top-level variable assignments are always evaluated, they are cheap and every rule may depend on them.
+ * Evaluation rewrites the AST, the statements have to be parsed again before the next compilation.
+ */
+public class IncrementalCompiler {
+
+    private Map<String, Record> records = new HashMap<>();
+    private int evaluated = 0;
+    private int reused = 0;
+
+    /**
+     * @param ast a stylesheet without semantic errors
+     * @param dependencies what the checker found the statements of the stylesheet to use and assign
+     * @return the CSS of the whole stylesheet
+     */
+    public String compile(AST ast, DependencyGraph dependencies) {
+        VariableManager varManager = new VariableManager();
+        Evaluator evaluator = new Evaluator(varManager);
+        Generator generator = new Generator();
+
+        Map<String, Record> compiled = new HashMap<>();
+        StringBuilder css = new StringBuilder();
+        evaluated = reused = 0;
+
+        for (int i = 0; i < ast.root.getChildCount(); i++) {
+            ASTNode statement = ast.root.getChild(i);
+
+            if (statement instanceof VariableAssignment) {
+                evaluator.applyStatement(ast, statement);
+                continue;
+            }
+
+            String key = statement.toString();
+            Map<String, VariableState> seen = states(varManager, dependencies.getUses(statement));
+
+            Record record = records.get(key);
+            if (record != null && record.seen.equals(seen)) {
+                record.exported.forEach(varManager::restoreState);
+                reused++;
+            } else {
+                evaluator.applyStatement(ast, statement);
+                Map<String, VariableState> exported = states(varManager, dependencies.getAssignments(statement));
+                record = new Record(seen, exported, generator.generate(statement));
+                evaluated++;
+            }
+
+            compiled.put(key, record);
+            css.append(record.css);
+        }
+
+        records = compiled;
+        return css.toString();
+    }
+
+    /**
+     * @return how many rules the last compilation evaluated and generated
+     */
+    public int getEvaluated() {
+        return evaluated;
+    }
+
+    /**
+     * @return how many rules the last compilation took from the previous one
+     */
+    public int getReused() {
+        return reused;
+    }
+
+    /**
+     * Forgets all rules, the next compilation evaluates everything
+     */
+    public void clear() {
+        records = new HashMap<>();
+    }
+
+    private static Map<String, VariableState> states(VariableManager varManager, Set<String> names) {
+        Map<String, VariableState> states = new LinkedHashMap<>();
+        for (String name : names) states.put(name, varManager.getState(name));
+        return states;
+    }
+
+    private static class Record {
+
+        //What the variables used by the rule resolved to before it was evaluated
+        final Map<String, VariableState> seen;
+        //What the variables assigned by the rule resolved to after it was evaluated
+        final Map<String, VariableState> exported;
+        final String css;
+
+        Record(Map<String, VariableState> seen, Map<String, VariableState> exported, String css) {
+            this.seen = seen;
+            this.exported = exported;
+            this.css = css;
+        }
+    }
+}
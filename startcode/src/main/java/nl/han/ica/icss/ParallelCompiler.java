@@ -0,0 +1,129 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.checker.DependencyGraph;
+import nl.han.ica.icss.checker.VariableManager;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Transforms and generates a checked stylesheet with the style rules evaluated and generated concurrently
+ * on a fork/join pool, every rule into a buffer of its own. The buffers are joined in source order, so the
+ * CSS is the same as that of transforming and generating the whole stylesheet.
+ *
+ * Evaluation resolves a variable to its latest value, whichever rule assigned it, so a statement that
+ * assigns a variable (see {@link DependencyGraph}) changes what the statements after it evaluate to.
+ * Those statements are evaluated in source order on the calling thread, the rules in between assign nothing
+ * and only read the variables, each through a fork of the VariableManager.
+ * Evaluation rewrites the AST, the statements have to be parsed again before the next compilation.
+ */
+public class ParallelCompiler {
+
+    //Rules evaluated by a single task, smaller tasks cost more to schedule than evaluating the rules does
+    private static final int RULES_PER_TASK = 16;
+
+    private final ForkJoinPool pool;
+
+    public ParallelCompiler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelCompiler(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param ast a stylesheet without semantic errors
+     * @param dependencies what the checker found the statements of the stylesheet to use and assign
+     * @return the CSS of the whole stylesheet
+     */
+    public String compile(AST ast, DependencyGraph dependencies) {
+        VariableManager varManager = new VariableManager();
+        Evaluator evaluator = new Evaluator(varManager);
+        Generator generator = new Generator();
+
+        StringBuilder css = new StringBuilder();
+        List<RuleCompilation> rules = new ArrayList<>();
+
+        for (int i = 0; i < ast.root.getChildCount(); i++) {
+            ASTNode statement = ast.root.getChild(i);
+
+            if (statement instanceof Stylerule && dependencies.getAssignments(statement).isEmpty()) {
+                //Forked before the statements after it assign anything, evaluated once they are all known
+                if (rules.isEmpty()) varManager.compact();
+                rules.add(new RuleCompilation(statement, varManager.fork()));
+                continue;
+            }
+
+            compileAll(ast, rules, css);
+            evaluator.applyStatement(ast, statement);
+            css.append(generator.generate(statement));
+        }
+
+        compileAll(ast, rules, css);
+        return css.toString();
+    }
+
+    private void compileAll(AST ast, List<RuleCompilation> rules, StringBuilder css) {
+        if (rules.isEmpty()) return;
+
+        //A batch that makes a single task is not worth handing to the pool, e.g. between alternating assignments
+        RuleCompilations compilations = new RuleCompilations(ast, rules, 0, rules.size());
+        if (rules.size() <= RULES_PER_TASK) compilations.compute();
+        else pool.invoke(compilations);
+        for (RuleCompilation rule : rules) css.append(rule.css);
+        rules.clear();
+    }
+
+    private static class RuleCompilation {
+
+        final ASTNode rule;
+        final VariableManager varManager;
+        String css;
+
+        RuleCompilation(ASTNode rule, VariableManager varManager) {
+            this.rule = rule;
+            this.varManager = varManager;
+        }
+    }
+
+    private static class RuleCompilations extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AST ast;
+        private final List<RuleCompilation> rules;
+        private final int from;
+        private final int to;
+
+        RuleCompilations(AST ast, List<RuleCompilation> rules, int from, int to) {
+            this.ast = ast;
+            this.rules = rules;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > RULES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RuleCompilations(ast, rules, from, middle), new RuleCompilations(ast, rules, middle, to));
+                return;
+            }
+
+            Generator generator = new Generator();
+            for (int i = from; i < to; i++) {
+                RuleCompilation rule = rules.get(i);
+                new Evaluator(rule.varManager).applyStatement(ast, rule.rule);
+                rule.css = generator.generate(rule.rule);
+            }
+        }
+    }
+}
@@ -2,30 +2,40 @@ package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
 import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.DependencyGraph;
+import nl.han.ica.icss.checker.ParallelChecker;
 import nl.han.ica.icss.checker.SemanticError;
-import nl.han.ica.icss.gen.ICSSLexer;
-import nl.han.ica.icss.gen.ICSSParser;
+import nl.han.ica.icss.checker.VariableManager;
 import nl.han.ica.icss.generator.Generator;
-import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.IncrementalParser;
+import nl.han.ica.icss.parser.TextChange;
 import nl.han.ica.icss.transforms.Evaluator;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Pipeline implements ANTLRErrorListener {
 
+    //Part of every compilation cache key, bump it when a change alters the generated CSS or the reported errors
+    public static final String VERSION = "2020.1.0-September+14";
+
     private AST ast;
     private boolean parsed = false;
     private boolean checked = false;
     private boolean transformed = false;
     private List<String> errors;
+    private boolean errorsInAST = false;
+    private final IncrementalParser incrementalParser = new IncrementalParser(this);
+    private final IncrementalCompiler incrementalCompiler = new IncrementalCompiler();
+    private DependencyGraph dependencies;
 
     public Pipeline() {
         errors = new ArrayList<>();
@@ -48,30 +58,39 @@ public class Pipeline implements ANTLRErrorListener {
     }
 
     public void parseString(String input) {
-
-        //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
-        ICSSLexer lexer = new ICSSLexer(inputStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(this);
         errors.clear();
 
         try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            this.ast = incrementalParser.parse(input);
+        } catch (RecognitionException e) {
+            this.ast = new AST();
+            errors.add(e.getMessage());
 
-            //Parse (with Antlr's generated parser)
-            ICSSParser parser = new ICSSParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(this);
+        } catch (ParseCancellationException e) {
+            this.ast = new AST();
+            errors.add("Syntax error");
+        }
+        parsed = errors.isEmpty();
+        checked = transformed = errorsInAST = false;
+    }
 
-            ParseTree parseTree = parser.stylesheet();
+    /**
+     * Parses an edited version of the last parsed input. Only the top-level statements touched by the
+     * edit are lexed and parsed again, the rest of the AST is kept as it is.
+     * @param input the whole edited input
+     * @param change the edit since the last parse, or null to find it by comparing with the last input
+     * @return the statements replaced in the stylesheet, or null when the whole input was parsed again
+     */
+    public IncrementalParser.Splice reparseString(String input, TextChange change) {
+        errors.clear();
 
-            //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
+        //The statements that are kept still carry the errors of the last check
+        if (errorsInAST) ast.clearErrors();
 
-            this.ast = listener.getAST();
+        IncrementalParser.Splice splice = null;
+        try {
+            splice = incrementalParser.update(input, change);
+            this.ast = incrementalParser.getAST();
         } catch (RecognitionException e) {
             this.ast = new AST();
             errors.add(e.getMessage());
@@ -81,14 +100,34 @@ public class Pipeline implements ANTLRErrorListener {
             errors.add("Syntax error");
         }
         parsed = errors.isEmpty();
-        checked = transformed = false;
+        checked = transformed = errorsInAST = false;
+        return splice;
     }
 
     public boolean check() {
             if(ast == null)
                 return false;
 
-           (new Checker()).check(this.ast);
+            Checker checker = new Checker();
+            checker.check(this.ast);
+            return checked(checker.getDependencies());
+    }
+
+    /**
+     * Same as check(), with the style rules checked concurrently on the pool
+     */
+    public boolean check(ForkJoinPool pool) {
+            if(ast == null)
+                return false;
+
+            ParallelChecker checker = new ParallelChecker(pool);
+            checker.check(this.ast);
+            return checked(checker.getDependencies());
+    }
+
+    private boolean checked(DependencyGraph dependencies) {
+            this.dependencies = dependencies;
+            errorsInAST = true;
 
             ArrayList<SemanticError> errors = this.ast.getErrors();
             if (!errors.isEmpty()) {
@@ -111,16 +150,82 @@ public class Pipeline implements ANTLRErrorListener {
             return;
 
         (new Evaluator()).apply(ast);
+        incrementalParser.invalidate();
 
 
         transformed = errors.isEmpty();
     }
 
+    /**
+     * Checks and transforms the AST in a single traversal with one shared VariableManager.
+     * Reports the same errors as check() and leaves a clean AST the same as check() followed by transform().
+     * When there are errors the part of the sheet before the first error has been evaluated already.
+     * @return true when the sheet has no semantic errors
+     */
+    public boolean checkAndTransform() {
+        if(ast == null)
+            return false;
+
+        VariableManager varManager = new VariableManager();
+        (new Evaluator(varManager)).checkAndApply(ast, new Checker(varManager));
+        incrementalParser.invalidate();
+        errorsInAST = true;
+
+        ArrayList<SemanticError> errors = this.ast.getErrors();
+        for (SemanticError e : errors) {
+            this.errors.add(e.toString());
+        }
+
+        checked = errors.isEmpty();
+        transformed = checked && this.errors.isEmpty();
+        return checked;
+    }
+
+    /**
+     * Transforms and generates a checked AST, evaluating and generating only the rules that changed
+     * or depend on a variable that changed since the last call. The other rules reuse their CSS.
+     * @return the CSS of the whole sheet, the same as transform() followed by generate()
+     */
+    public String transformAndGenerateIncrementally() {
+        if(ast == null || !checked)
+            throw new IllegalStateException("Only a checked AST without errors can be compiled incrementally");
+
+        String css = incrementalCompiler.compile(ast, dependencies);
+        incrementalParser.invalidate();
+
+        transformed = errors.isEmpty();
+        return css;
+    }
+
+    /**
+     * Transforms and generates a checked AST with the style rules evaluated and generated concurrently on the pool.
+     * @return the CSS of the whole sheet, the same as transform() followed by generate()
+     */
+    public String transformAndGenerate(ForkJoinPool pool) {
+        if(ast == null || !checked)
+            throw new IllegalStateException("Only a checked AST without errors can be compiled in parallel");
+
+        String css = new ParallelCompiler(pool).compile(ast, dependencies);
+        incrementalParser.invalidate();
+
+        transformed = errors.isEmpty();
+        return css;
+    }
+
+    public IncrementalCompiler getIncrementalCompiler() {
+        return incrementalCompiler;
+    }
+
     public String generate() {
         Generator generator = new Generator();
         return generator.generate(ast);
     }
 
+    public void generate(Writer writer) throws IOException {
+        Generator generator = new Generator();
+        generator.generate(ast, writer);
+    }
+
     //Catch ANTLR errors
     @Override
     public void reportAmbiguity(Parser arg0, DFA arg1, int arg2, int arg3,
@@ -0,0 +1,185 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.checker.VariableManager;
+import nl.han.ica.icss.gen.ICSSBaseListener;
+import nl.han.ica.icss.gen.ICSSLexer;
+import nl.han.ica.icss.gen.ICSSParser;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a stylesheet while it is being read. The input goes through an unbuffered char and token
+ * stream, every top-level statement is checked, evaluated and written out as soon as the parser
+ * finishes it and is dropped afterwards. Only the global variables are kept between statements,
+ * so memory use depends on the largest statement instead of the size of the whole sheet.
+ *
+ * The reported errors and the CSS of a clean sheet are the same as with the Pipeline.
+ * When there are errors, the output holds the CSS of the statements before the first one.
+ */
+public class StreamingCompiler {
+
+    /**
+     * @param input the ICSS text, read once from start to end
+     * @param output receives the CSS of every statement as soon as it is compiled
+     * @return the syntax errors, or when there are none the semantic errors of the sheet
+     */
+    public List<String> compile(Reader input, Writer output) throws IOException {
+        List<String> syntaxErrors = new ArrayList<>();
+        ANTLRErrorListener errorListener = new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                syntaxErrors.add("Syntax error: " + msg);
+            }
+        };
+
+        //Lex (with Antlr's generated lexer), tokens have to copy their text out of the unbuffered stream
+        ICSSLexer lexer = new StreamingLexer(new UnbufferedCharStream(input));
+        lexer.setTokenFactory(new TextCopyingTokenFactory());
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+
+        //Parse (with Antlr's generated parser), the statement handler prunes the parse tree as it grows
+        ICSSParser parser = new ICSSParser(new UnbufferedTokenStream<>(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+
+        StatementHandler handler = new StatementHandler(output, syntaxErrors);
+        parser.addParseListener(handler);
+
+        try {
+            parser.stylesheet();
+        } catch (RuntimeException e) {
+            //A failure of the statement handler is what went wrong, not what the parser ran into after it
+            RuntimeException failure = handler.failure != null ? handler.failure : e;
+            if (failure instanceof UncheckedIOException) throw ((UncheckedIOException) failure).getCause();
+
+            //The unbuffered char stream wraps the exceptions of the reader
+            if (failure.getCause() instanceof IOException) throw (IOException) failure.getCause();
+            throw failure;
+        }
+
+        return syntaxErrors.isEmpty() ? handler.semanticErrors : syntaxErrors;
+    }
+
+    public List<String> compile(InputStream input, Writer output) throws IOException {
+        return compile(new InputStreamReader(input, StandardCharsets.UTF_8), output);
+    }
+
+    private static class StreamingLexer extends ICSSLexer {
+
+        StreamingLexer(CharStream input) {
+            super(input);
+        }
+
+        //The unbuffered stream cannot return text past its end, which the default message asks for at the end of the input
+        @Override
+        public void notifyListeners(LexerNoViableAltException e) {
+            int stop = _input.LA(1) == CharStream.EOF ? _input.index() - 1 : _input.index();
+            String text = _input.getText(Interval.of(_tokenStartCharIndex, stop));
+            String msg = "token recognition error at: '" + getErrorDisplay(text) + "'";
+
+            getErrorListenerDispatch().syntaxError(this, null, _tokenStartLine, _tokenStartCharPositionInLine, msg, e);
+        }
+    }
+
+    //Copying makes the end of the input an empty token, error messages expect it to read <EOF>
+    private static class TextCopyingTokenFactory extends CommonTokenFactory {
+
+        TextCopyingTokenFactory() {
+            super(true);
+        }
+
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                                  int start, int stop, int line, int charPositionInLine) {
+            if (type == Token.EOF) text = "<EOF>";
+            return super.create(source, type, text, channel, start, stop, line, charPositionInLine);
+        }
+    }
+
+    /*
+     Runs as a parse listener. Each time the parser exits a top-level statement the statement's subtree is
+     turned into an AST holding just that statement, compiled, and removed from the parse tree again.
+     */
+    private static class StatementHandler extends ICSSBaseListener {
+
+        private final Writer output;
+        private final List<String> syntaxErrors;
+        private final List<String> semanticErrors = new ArrayList<>();
+        //The exception compiling a statement failed with, rethrown by compile whatever the parser does next
+        private RuntimeException failure = null;
+
+        private final ASTListener astListener = new ASTListener();
+        private final IterativeParseTreeWalker walker = new IterativeParseTreeWalker();
+
+        //Shared by all statements, compact() keeps it from growing with the sheet
+        private final VariableManager varManager = new VariableManager();
+        private final Checker checker = new Checker(varManager);
+        private final Evaluator evaluator = new Evaluator(varManager);
+        private final Generator generator = new Generator();
+
+        StatementHandler(Writer output, List<String> syntaxErrors) {
+            this.output = output;
+            this.syntaxErrors = syntaxErrors;
+        }
+
+        @Override
+        public void enterStylesheet(ICSSParser.StylesheetContext ctx) {
+            astListener.enterStylesheet(ctx);
+        }
+
+        @Override
+        public void exitEveryRule(ParserRuleContext ctx) {
+            if (!(ctx.getParent() instanceof ICSSParser.StylesheetContext)) return;
+
+            //When compiling the statement fails the parser exits the rule again on its way out, it was removed already
+            List<ParseTree> statements = ctx.getParent().children;
+            if (statements == null || statements.isEmpty() || statements.get(statements.size() - 1) != ctx) return;
+            ctx.getParent().removeLastChild();
+
+            //The listener cannot build an AST from every broken statement and the errors are all that is reported
+            if (!syntaxErrors.isEmpty()) return;
+
+            try {
+                compileStatement(ctx);
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        private void compileStatement(ParserRuleContext ctx) {
+            walker.walk(astListener, ctx);
+            AST statement = astListener.getAST();
+
+            evaluator.checkAndApply(statement, checker);
+            for (SemanticError error : statement.getErrors()) semanticErrors.add(error.toString());
+
+            if (semanticErrors.isEmpty()) {
+                try {
+                    generator.generate(statement, output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            statement.root.body.clear();
+            varManager.compact();
+        }
+    }
+}
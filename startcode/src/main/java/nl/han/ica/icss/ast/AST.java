@@ -24,17 +24,24 @@ public class AST {
 
     public ArrayList<SemanticError> getErrors() {
 	    ArrayList<SemanticError> errors = new ArrayList<>();
-        collectErrors(errors,root);
+        new ASTWalker() {
+            @Override
+            protected boolean enter(ASTNode node) {
+                if(node.hasError()) errors.add(node.getError());
+                return true;
+            }
+        }.walk(root);
         return errors;
     }
 
-    private void collectErrors(ArrayList<SemanticError> errors, ASTNode node) {
-	    if(node.hasError()) {
-	        errors.add(node.getError());
-        }
-        for(ASTNode child: node.getChildren()) {
-	        collectErrors(errors,child);
-        }
+    public void clearErrors() {
+        new ASTWalker() {
+            @Override
+            protected boolean enter(ASTNode node) {
+                node.clearError();
+                return true;
+            }
+        }.walk(root);
     }
 
 	@Override
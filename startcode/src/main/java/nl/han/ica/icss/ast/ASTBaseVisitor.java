@@ -0,0 +1,148 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+/**
+ * Default implementation of ASTVisitor. Every visit method falls back to the method of its
+ * superclass (e.g. visitPixelLiteral to visitLiteral to visitExpression to visitNode), and visitNode
+ * visits all children. Override only the methods a pass needs.
+ *
+ * @param <R> result type of the visit methods
+ */
+public class ASTBaseVisitor<R> implements ASTVisitor<R> {
+
+    /*
+     The result of every visit method that is not overridden
+     */
+    protected R defaultResult() {
+        return null;
+    }
+
+    public R visitChildren(ASTNode node) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            node.getChild(i).accept(this);
+        }
+        return defaultResult();
+    }
+
+    public R visitNode(ASTNode node) {
+        return visitChildren(node);
+    }
+
+    public R visitExpression(Expression node) {
+        return visitNode(node);
+    }
+
+    public R visitLiteral(Literal node) {
+        return visitExpression(node);
+    }
+
+    public R visitOperation(Operation node) {
+        return visitExpression(node);
+    }
+
+    public R visitSelector(Selector node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitStylesheet(Stylesheet node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitStylerule(Stylerule node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitDeclaration(Declaration node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitPropertyName(PropertyName node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitVariableAssignment(VariableAssignment node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitVariableReference(VariableReference node) {
+        return visitExpression(node);
+    }
+
+    @Override
+    public R visitIfClause(IfClause node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitElseClause(ElseClause node) {
+        return visitNode(node);
+    }
+
+    @Override
+    public R visitBoolLiteral(BoolLiteral node) {
+        return visitLiteral(node);
+    }
+
+    @Override
+    public R visitColorLiteral(ColorLiteral node) {
+        return visitLiteral(node);
+    }
+
+    @Override
+    public R visitPercentageLiteral(PercentageLiteral node) {
+        return visitLiteral(node);
+    }
+
+    @Override
+    public R visitPixelLiteral(PixelLiteral node) {
+        return visitLiteral(node);
+    }
+
+    @Override
+    public R visitScalarLiteral(ScalarLiteral node) {
+        return visitLiteral(node);
+    }
+
+    @Override
+    public R visitAddOperation(AddOperation node) {
+        return visitOperation(node);
+    }
+
+    @Override
+    public R visitSubtractOperation(SubtractOperation node) {
+        return visitOperation(node);
+    }
+
+    @Override
+    public R visitMultiplyOperation(MultiplyOperation node) {
+        return visitOperation(node);
+    }
+
+    @Override
+    public R visitClassSelector(ClassSelector node) {
+        return visitSelector(node);
+    }
+
+    @Override
+    public R visitIdSelector(IdSelector node) {
+        return visitSelector(node);
+    }
+
+    @Override
+    public R visitTagSelector(TagSelector node) {
+        return visitSelector(node);
+    }
+}
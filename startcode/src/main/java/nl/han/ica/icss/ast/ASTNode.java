@@ -2,13 +2,19 @@ package nl.han.ica.icss.ast;
 
 import nl.han.ica.icss.checker.SemanticError;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Deque;
+import java.util.function.Consumer;
 
-public class ASTNode {
+public abstract class ASTNode {
 
     private SemanticError error = null;
 
+    //Set by freeze, from then on the subtree must not change and its hash is kept
+    private boolean frozen = false;
+    private int structuralHash;
+
     /*
      This method is used in the GUI to create an appropriate label
      in the tree visualisation.
@@ -17,6 +23,11 @@ public class ASTNode {
         return "ASTNode";
     }
 
+    /*
+     Calls the visit method of the visitor that belongs to the concrete node class.
+     */
+    public abstract <R> R accept(ASTVisitor<R> visitor);
+
     /*
      Different AST nodes use different attributes to store their children.
      This method provides a unified interface.
@@ -25,6 +36,24 @@ public class ASTNode {
         return new ArrayList<>();
     }
 
+    /*
+     Together with getChild this walks the children without the list getChildren
+     allocates. Children are numbered in the same order as getChildren returns them.
+     */
+    public int getChildCount() {
+        return 0;
+    }
+
+    public ASTNode getChild(int index) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getChildCount());
+    }
+
+    public void forEachChild(Consumer<ASTNode> action) {
+        for (int i = 0; i < getChildCount(); i++) {
+            action.accept(getChild(i));
+        }
+    }
+
     /*
     By implementing this method in a subclass you can easily create AST nodes
       incrementally.
@@ -45,45 +74,159 @@ public class ASTNode {
         return this.error;
     }
 
+    /**
+     * Literals are shared between trees, so they cannot hold an error and throw an IllegalStateException.
+     * Report it on the node holding the literal instead, see Literal.
+     */
     public void setError(String description) {
         this.error = new SemanticError(description);
     }
 
+    public void clearError() {
+        this.error = null;
+    }
+
     public boolean hasError() {
         return error != null;
     }
 
 	@Override
 	public String toString() {
-		StringBuilder result = new StringBuilder();
-		toString(result);
-		return result.toString();
-	}
+		StringBuilder builder = new StringBuilder();
+		new ASTWalker() {
+			@Override
+			protected boolean enter(ASTNode node) {
+				builder.append("[").append(node.getNodeLabel()).append("|");
+				return true;
+			}
 
-	private void toString(StringBuilder builder) {
-		builder.append("[");
-		builder.append(getNodeLabel());	
-		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
-		builder.append("]");
+			@Override
+			protected void exit(ASTNode node) {
+				builder.append("]");
+			}
+		}.walk(this);
+		return builder.toString();
 	}
 
+    /*
+     Two nodes are equal when their subtrees have the same shape and every pair of nodes
+     equal by equalsNode. The pairs are compared from an explicit stack, so deep trees do not
+     overflow the call stack.
+     */
 	@Override
     public boolean equals(Object o) {
-        if(! (o instanceof ASTNode))
-            return false;
-        //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
-            return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
-                return false;
+        if (this == o) return true;
+        if (!(o instanceof ASTNode)) return false;
+
+        Deque<ASTNode> pending = new ArrayDeque<>();
+        pending.push(this);
+        pending.push((ASTNode) o);
+
+        while (!pending.isEmpty()) {
+            ASTNode other = pending.pop();
+            ASTNode node = pending.pop();
+            if (node == other) continue;
+
+            if (node.frozen && other.frozen && node.structuralHash != other.structuralHash) return false;
+            if (!node.equalsNode(other) || node.getChildCount() != other.getChildCount()) return false;
+
+            for (int i = 0; i < node.getChildCount(); i++) {
+                pending.push(node.getChild(i));
+                pending.push(other.getChild(i));
             }
         }
         return true;
     }
+
+    /*
+     The hash of a node combines hashCodeNode with the hashes of its children, so a frozen
+     subtree contributes the hash it keeps and only what is not frozen is walked.
+     */
+    @Override
+    public int hashCode() {
+        if (frozen) return structuralHash;
+
+        Deque<Integer> hashes = new ArrayDeque<>();
+        new ASTWalker() {
+            @Override
+            protected boolean enter(ASTNode node) {
+                if (!hasKeptHash(node)) return true;
+
+                hashes.push(keptHash(node));
+                return false;
+            }
+
+            @Override
+            protected void exit(ASTNode node) {
+                int[] children = new int[node.getChildCount()];
+                for (int i = children.length - 1; i >= 0; i--) children[i] = hashes.pop();
+                hashes.push(combineHashes(node, children));
+            }
+        }.walk(this);
+        return hashes.pop();
+    }
+
+    //Literals are shared between trees and threads, so they are never frozen, but hashing one takes constant time
+    private static boolean hasKeptHash(ASTNode node) {
+        return node.frozen || node instanceof Literal;
+    }
+
+    private static int keptHash(ASTNode node) {
+        return node.frozen ? node.structuralHash : node.hashCode();
+    }
+
+    private static int combineHashes(ASTNode node, int[] children) {
+        int hash = node.hashCodeNode();
+        for (int child : children) hash = 31 * hash + child;
+        return hash;
+    }
+
+    /**
+     * Makes this subtree immutable and keeps the hash of every node in it, so hashing it again costs nothing
+     * and comparing it to another frozen subtree with a different hash stops right away.
+     * Adding or removing a child of a frozen node throws an IllegalStateException. Errors can still be set.
+     * @return this node
+     */
+    public ASTNode freeze() {
+        new ASTWalker() {
+            @Override
+            protected boolean enter(ASTNode node) {
+                return !hasKeptHash(node);
+            }
+
+            @Override
+            protected void exit(ASTNode node) {
+                int[] children = new int[node.getChildCount()];
+                for (int i = 0; i < children.length; i++) children[i] = keptHash(node.getChild(i));
+
+                node.structuralHash = combineHashes(node, children);
+                node.frozen = true;
+            }
+        }.walk(this);
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /*
+     Called by the subclasses before they change their children
+     */
+    protected void checkNotFrozen() {
+        if (frozen) throw new IllegalStateException("A frozen " + getNodeLabel() + " cannot change");
+    }
+
+    /*
+     Compares what this node holds apart from its children, e.g. the value of a literal.
+     Nodes of different classes are never equal. Subclasses with fields of their own override
+     this and hashCodeNode, equals and hashCode take care of the children.
+     */
+    protected boolean equalsNode(ASTNode other) {
+        return getClass() == other.getClass();
+    }
+
+    protected int hashCodeNode() {
+        return getClass().getName().hashCode();
+    }
 }
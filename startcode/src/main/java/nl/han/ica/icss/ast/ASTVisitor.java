@@ -0,0 +1,57 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+/**
+ * Visitor over the ICSS AST. Every concrete node class calls its own method from accept,
+ * so a pass only runs the handler that belongs to the node instead of testing it with instanceof.
+ * Extend ASTBaseVisitor to only handle the nodes a pass is interested in.
+ *
+ * @param <R> result type of the visit methods, use Void when a pass returns nothing
+ */
+public interface ASTVisitor<R> {
+
+    R visitStylesheet(Stylesheet node);
+
+    R visitStylerule(Stylerule node);
+
+    R visitDeclaration(Declaration node);
+
+    R visitPropertyName(PropertyName node);
+
+    R visitVariableAssignment(VariableAssignment node);
+
+    R visitVariableReference(VariableReference node);
+
+    R visitIfClause(IfClause node);
+
+    R visitElseClause(ElseClause node);
+
+    R visitBoolLiteral(BoolLiteral node);
+
+    R visitColorLiteral(ColorLiteral node);
+
+    R visitPercentageLiteral(PercentageLiteral node);
+
+    R visitPixelLiteral(PixelLiteral node);
+
+    R visitScalarLiteral(ScalarLiteral node);
+
+    R visitAddOperation(AddOperation node);
+
+    R visitSubtractOperation(SubtractOperation node);
+
+    R visitMultiplyOperation(MultiplyOperation node);
+
+    R visitClassSelector(ClassSelector node);
+
+    R visitIdSelector(IdSelector node);
+
+    R visitTagSelector(TagSelector node);
+}
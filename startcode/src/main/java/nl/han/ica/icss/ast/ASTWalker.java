@@ -0,0 +1,73 @@
+package nl.han.ica.icss.ast;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Depth-first walk over an AST that keeps the path from the root in an explicit stack instead of
+ * the call stack, so how deep a tree can nest (long operation chains, if-clauses inside if-clauses)
+ * is only limited by the heap.
+ *
+ * Every node is entered before its children. A node whose children were walked is exited after them,
+ * which is where a pass closes what it opened on entering, e.g. a scope.
+ */
+public abstract class ASTWalker {
+
+    /**
+     * Walks the node and everything below it. A walker can start a new walk from within enter or exit,
+     * the walks do not share their paths.
+     */
+    public void walk(ASTNode root) {
+        if (!enter(root)) return;
+
+        Deque<Frame> path = new ArrayDeque<>();
+        path.push(new Frame(root, walkFromCopy(root)));
+
+        while (!path.isEmpty()) {
+            Frame frame = path.peek();
+            ASTNode child = frame.next();
+
+            if (child == null) {
+                path.pop();
+                exit(frame.node);
+            } else if (enter(child)) {
+                path.push(new Frame(child, walkFromCopy(child)));
+            }
+        }
+    }
+
+    /**
+     * @return true to walk the children of the node and exit it afterwards
+     */
+    protected abstract boolean enter(ASTNode node);
+
+    protected void exit(ASTNode node) {
+    }
+
+    /**
+     * By default the children are read one at a time, as the walk gets to them. Passes that move the
+     * children of a node while walking them (e.g. evaluating an if-clause) walk from a copy instead,
+     * taken when the node is entered.
+     */
+    protected boolean walkFromCopy(ASTNode node) {
+        return false;
+    }
+
+    private static class Frame {
+
+        final ASTNode node;
+        final List<ASTNode> children;
+        int next = 0;
+
+        Frame(ASTNode node, boolean fromCopy) {
+            this.node = node;
+            this.children = fromCopy ? node.getChildren() : null;
+        }
+
+        ASTNode next() {
+            if (children != null) return next < children.size() ? children.get(next++) : null;
+            return next < node.getChildCount() ? node.getChild(next++) : null;
+        }
+    }
+}
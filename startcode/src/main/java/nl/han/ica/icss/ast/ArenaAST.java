@@ -0,0 +1,393 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+
+/**
+ * A compact encoding of an AST for very large sheets. Instead of an object per node the nodes are numbered
+ * and their fields are kept in parallel arrays: the kind of node, its parent, first child and next sibling,
+ * and a single int of payload (the value of a number, a bool as 0 or 1, or the index of a name, selector
+ * or color in a table that holds every distinct string once). A node costs 17 bytes.
+ *
+ * Nodes are stored in pre-order, children are only ever added to the last node or one of its ancestors.
+ * The subtree of a node is therefore the range from the node up to the next sibling of it or of its nearest
+ * ancestor that has one.
+ *
+ * The Checker, Evaluator and Generator work on ASTNodes, toNode and toAST turn (part of) the arena back
+ * into them, add and of do the reverse.
+ */
+public final class ArenaAST {
+
+    public static final byte STYLESHEET = 0;
+    public static final byte STYLERULE = 1;
+    public static final byte TAG_SELECTOR = 2;
+    public static final byte ID_SELECTOR = 3;
+    public static final byte CLASS_SELECTOR = 4;
+    public static final byte DECLARATION = 5;
+    public static final byte PROPERTY_NAME = 6;
+    public static final byte VARIABLE_ASSIGNMENT = 7;
+    public static final byte VARIABLE_REFERENCE = 8;
+    public static final byte IF_CLAUSE = 9;
+    public static final byte ELSE_CLAUSE = 10;
+    public static final byte ADD_OPERATION = 11;
+    public static final byte SUBTRACT_OPERATION = 12;
+    public static final byte MULTIPLY_OPERATION = 13;
+    public static final byte PIXEL_LITERAL = 14;
+    public static final byte PERCENTAGE_LITERAL = 15;
+    public static final byte SCALAR_LITERAL = 16;
+    public static final byte BOOL_LITERAL = 17;
+    public static final byte COLOR_LITERAL = 18;
+
+    //Index of a node that does not exist, e.g. the parent of the root
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] firstChildren = new int[INITIAL_CAPACITY];
+    private int[] nextSiblings = new int[INITIAL_CAPACITY];
+    private int[] payloads = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private String[] strings = new String[INITIAL_CAPACITY];
+    private final HashMap<String, Integer> stringIndexes = new HashMap<>();
+
+    /**
+     * Encodes the AST, an empty AST gives an empty arena
+     */
+    public static ArenaAST of(AST ast) {
+        ArenaAST arena = new ArenaAST();
+        if (ast.root != null) arena.add(NONE, ast.root);
+        arena.trimToSize();
+        return arena;
+    }
+
+    /**
+     * Adds a node with a number as payload
+     * @param parent the last node or one of its ancestors, NONE for the root of an empty arena
+     * @return the index of the new node
+     */
+    public int add(int parent, byte kind, int value) {
+        if (parent == NONE && size != 0) throw new IllegalStateException("The arena already has a root");
+        if (size == kinds.length) grow();
+
+        int node = size++;
+        kinds[node] = kind;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        payloads[node] = value;
+
+        if (parent == NONE) return node;
+
+        //The last child added to the parent is the last node or the ancestor of it right below the parent
+        int previous = node - 1;
+        while (previous != parent && parents[previous] != parent) {
+            previous = parents[previous];
+            if (previous == NONE) throw new IllegalStateException("Node " + parent + " is not the last node or one of its ancestors");
+        }
+
+        if (previous == parent) firstChildren[parent] = node;
+        else nextSiblings[previous] = node;
+        return node;
+    }
+
+    /**
+     * Adds a node with a name, selector or color as payload
+     */
+    public int add(int parent, byte kind, String text) {
+        Integer index = stringIndexes.get(text);
+        if (index == null) {
+            index = stringIndexes.size();
+            if (index == strings.length) strings = Arrays.copyOf(strings, Math.max(INITIAL_CAPACITY, index * 2));
+            strings[index] = text;
+            stringIndexes.put(text, index);
+        }
+        return add(parent, kind, index);
+    }
+
+    /**
+     * Encodes the node and everything below it
+     * @param parent the last node or one of its ancestors, NONE for the root of an empty arena
+     * @return the index of the encoded node
+     */
+    public int add(int parent, ASTNode node) {
+        Encoder encoder = new Encoder(parent);
+        encoder.walk(node);
+        return encoder.first;
+    }
+
+    /**
+     * Removes the node and everything below it. Nothing may have been added after its subtree,
+     * e.g. to replace an expression that was just added.
+     */
+    public void removeLast(int node) {
+        if (subtreeEnd(node) != size) throw new IllegalStateException("Node " + node + " is not the last subtree");
+
+        int parent = parents[node];
+        if (parent != NONE) {
+            if (firstChildren[parent] == node) {
+                firstChildren[parent] = NONE;
+            } else {
+                int previous = firstChildren[parent];
+                while (nextSiblings[previous] != node) previous = nextSiblings[previous];
+                nextSiblings[previous] = NONE;
+            }
+        }
+        size = node;
+    }
+
+    /**
+     * Releases the capacity reserved for nodes and strings that were not added
+     */
+    public void trimToSize() {
+        kinds = Arrays.copyOf(kinds, size);
+        parents = Arrays.copyOf(parents, size);
+        firstChildren = Arrays.copyOf(firstChildren, size);
+        nextSiblings = Arrays.copyOf(nextSiblings, size);
+        payloads = Arrays.copyOf(payloads, size);
+        strings = Arrays.copyOf(strings, stringIndexes.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the stylesheet, or NONE when the arena is empty
+     */
+    public int root() {
+        return size > 0 ? 0 : NONE;
+    }
+
+    public byte kind(int node) {
+        return kinds[node];
+    }
+
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * @return the value of a pixel, percentage or scalar literal, 1 or 0 for a bool literal
+     */
+    public int value(int node) {
+        return payloads[node];
+    }
+
+    /**
+     * @return the name of a property or variable, the name of a selector or the value of a color literal
+     */
+    public String text(int node) {
+        return strings[payloads[node]];
+    }
+
+    /**
+     * @return the index right after the last node below the node
+     */
+    public int subtreeEnd(int node) {
+        for (int ancestor = node; ancestor != NONE; ancestor = parents[ancestor]) {
+            if (nextSiblings[ancestor] != NONE) return nextSiblings[ancestor];
+        }
+        return size;
+    }
+
+    /**
+     * Builds the ASTNodes of the node and everything below it
+     */
+    public ASTNode toNode(int node) {
+        int end = subtreeEnd(node);
+        ASTNode[] nodes = new ASTNode[end - node];
+
+        for (int i = node; i < end; i++) {
+            nodes[i - node] = create(i);
+            if (i != node) nodes[parents[i] - node].addChild(nodes[i - node]);
+        }
+        return nodes[0];
+    }
+
+    public AST toAST() {
+        return size > 0 ? new AST((Stylesheet) toNode(0)) : new AST();
+    }
+
+    private ASTNode create(int node) {
+        switch (kinds[node]) {
+            case STYLESHEET: return new Stylesheet();
+            case STYLERULE: return new Stylerule();
+            case TAG_SELECTOR: return new TagSelector(text(node));
+            case ID_SELECTOR: return new IdSelector(text(node));
+            case CLASS_SELECTOR: return new ClassSelector(text(node));
+            case DECLARATION: return new Declaration();
+            case PROPERTY_NAME: return new PropertyName(text(node));
+            case VARIABLE_ASSIGNMENT: return new VariableAssignment();
+            case VARIABLE_REFERENCE: return new VariableReference(text(node));
+            case IF_CLAUSE: return new IfClause();
+            case ELSE_CLAUSE: return new ElseClause();
+            case ADD_OPERATION: return new AddOperation();
+            case SUBTRACT_OPERATION: return new SubtractOperation();
+            case MULTIPLY_OPERATION: return new MultiplyOperation();
+            case PIXEL_LITERAL: return PixelLiteral.valueOf(payloads[node]);
+            case PERCENTAGE_LITERAL: return PercentageLiteral.valueOf(payloads[node]);
+            case SCALAR_LITERAL: return ScalarLiteral.valueOf(payloads[node]);
+            case BOOL_LITERAL: return BoolLiteral.valueOf(payloads[node] != 0);
+            case COLOR_LITERAL: return ColorLiteral.valueOf(text(node));
+            default: throw new IllegalStateException("Unexpected kind: " + kinds[node]);
+        }
+    }
+
+    private void grow() {
+        int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+        kinds = Arrays.copyOf(kinds, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    //Adds every node it walks below the node on top of the path
+    private class Encoder extends ASTWalker implements ASTVisitor<Integer> {
+
+        private final Deque<Integer> path = new ArrayDeque<>();
+        private final int parent;
+        private int first = NONE;
+
+        Encoder(int parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        protected boolean enter(ASTNode node) {
+            int index = node.accept(this);
+            if (first == NONE) first = index;
+            path.push(index);
+            return true;
+        }
+
+        @Override
+        protected void exit(ASTNode node) {
+            path.pop();
+        }
+
+        private int add(byte kind, int value) {
+            return ArenaAST.this.add(path.isEmpty() ? parent : path.peek(), kind, value);
+        }
+
+        private int add(byte kind, String text) {
+            return ArenaAST.this.add(path.isEmpty() ? parent : path.peek(), kind, text);
+        }
+
+        @Override
+        public Integer visitStylesheet(Stylesheet node) {
+            return add(STYLESHEET, 0);
+        }
+
+        @Override
+        public Integer visitStylerule(Stylerule node) {
+            return add(STYLERULE, 0);
+        }
+
+        @Override
+        public Integer visitDeclaration(Declaration node) {
+            return add(DECLARATION, 0);
+        }
+
+        @Override
+        public Integer visitPropertyName(PropertyName node) {
+            return add(PROPERTY_NAME, node.name);
+        }
+
+        @Override
+        public Integer visitVariableAssignment(VariableAssignment node) {
+            return add(VARIABLE_ASSIGNMENT, 0);
+        }
+
+        @Override
+        public Integer visitVariableReference(VariableReference node) {
+            return add(VARIABLE_REFERENCE, node.name);
+        }
+
+        @Override
+        public Integer visitIfClause(IfClause node) {
+            return add(IF_CLAUSE, 0);
+        }
+
+        @Override
+        public Integer visitElseClause(ElseClause node) {
+            return add(ELSE_CLAUSE, 0);
+        }
+
+        @Override
+        public Integer visitBoolLiteral(BoolLiteral node) {
+            return add(BOOL_LITERAL, node.value ? 1 : 0);
+        }
+
+        @Override
+        public Integer visitColorLiteral(ColorLiteral node) {
+            return add(COLOR_LITERAL, node.value);
+        }
+
+        @Override
+        public Integer visitPercentageLiteral(PercentageLiteral node) {
+            return add(PERCENTAGE_LITERAL, node.value);
+        }
+
+        @Override
+        public Integer visitPixelLiteral(PixelLiteral node) {
+            return add(PIXEL_LITERAL, node.value);
+        }
+
+        @Override
+        public Integer visitScalarLiteral(ScalarLiteral node) {
+            return add(SCALAR_LITERAL, node.value);
+        }
+
+        @Override
+        public Integer visitAddOperation(AddOperation node) {
+            return add(ADD_OPERATION, 0);
+        }
+
+        @Override
+        public Integer visitSubtractOperation(SubtractOperation node) {
+            return add(SUBTRACT_OPERATION, 0);
+        }
+
+        @Override
+        public Integer visitMultiplyOperation(MultiplyOperation node) {
+            return add(MULTIPLY_OPERATION, 0);
+        }
+
+        @Override
+        public Integer visitClassSelector(ClassSelector node) {
+            return add(CLASS_SELECTOR, node.cls);
+        }
+
+        @Override
+        public Integer visitIdSelector(IdSelector node) {
+            return add(ID_SELECTOR, node.id);
+        }
+
+        @Override
+        public Integer visitTagSelector(TagSelector node) {
+            return add(TAG_SELECTOR, node.tag);
+        }
+    }
+}
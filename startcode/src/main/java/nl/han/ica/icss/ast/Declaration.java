@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 /*
  * A Declaration defines a style property. Declarations are things like "width: 100px"
@@ -22,6 +21,11 @@ public class Declaration extends ASTNode {
 	    return "Declaration";
 	}
 
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitDeclaration(this);
+	}
+
 	@Override
 	public ArrayList<ASTNode> getChildren() {
 
@@ -32,8 +36,23 @@ public class Declaration extends ASTNode {
 		    children.add(expression);
 		return children;
 	}
+	@Override
+	public int getChildCount() {
+		return (property != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
+
+	@Override
+	public ASTNode getChild(int index) {
+		if(index == 0 && property != null)
+			return property;
+		if(index < getChildCount() && expression != null)
+			return expression;
+		return super.getChild(index);
+	}
+
 	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotFrozen();
 		if(child instanceof PropertyName) {
 			property = (PropertyName) child;
 		} else if(child instanceof Expression) {
@@ -41,18 +60,4 @@ public class Declaration extends ASTNode {
 		}
 		return this;
 	}
-
-	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		Declaration that = (Declaration) o;
-		return Objects.equals(property, that.property) &&
-				Objects.equals(expression, that.expression);
-	}
-	@Override
-	public int hashCode() {
-		return Objects.hash(property, expression);
-	}
 }
@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 public class IfClause extends ASTNode {
 
@@ -27,6 +26,11 @@ public class IfClause extends ASTNode {
         return "If_Clause";
     }
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitIfClause(this);
+    }
+
     @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
@@ -38,8 +42,25 @@ public class IfClause extends ASTNode {
         return children;
     }
 
+    @Override
+    public int getChildCount() {
+        return 1 + body.size() + (elseClause != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode getChild(int index) {
+        if (index == 0)
+            return conditionalExpression;
+        if (index <= body.size())
+            return body.get(index - 1);
+        if (index == body.size() + 1 && elseClause != null)
+            return elseClause;
+        return super.getChild(index);
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotFrozen();
         if(child instanceof Expression)
             conditionalExpression  = (Expression) child;
         else if (child instanceof ElseClause)
@@ -50,28 +71,9 @@ public class IfClause extends ASTNode {
         return this;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        IfClause ifClause = (IfClause) o;
-        if (this.elseClause == null)
-            return Objects.equals(conditionalExpression, ifClause.getConditionalExpression()) &&
-                Objects.equals(body, ifClause.body);
-        else
-            return Objects.equals(conditionalExpression, ifClause.getConditionalExpression()) &&
-                    Objects.equals(body, ifClause.body) &&
-                    Objects.equals(elseClause, ifClause.elseClause);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(conditionalExpression, body, elseClause);
-    }
-
     @Override
     public ASTNode removeChild(ASTNode child) {
+        checkNotFrozen();
         body.remove(child);
         if(conditionalExpression.equals(child)) conditionalExpression = null;
         if(elseClause != null) if(elseClause.equals(child)) elseClause = null;
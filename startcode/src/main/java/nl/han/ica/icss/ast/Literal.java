@@ -1,4 +1,23 @@
 package nl.han.ica.icss.ast;
 
+/*
+ Literals are immutable, so the valueOf factories of the literal classes hand out one shared
+ instance per value. A shared literal can sit in many places of the AST at once, and an error
+ set on it would show up in all of them. Errors are reported on the declaration, operation or
+ other node that holds the literal instead, the Checker never reports on a literal, and setError
+ on a literal throws. A literal never holds an error, so clearing it changes nothing.
+ */
 public abstract class Literal extends Expression {
+
+    //Fails instead of marking the value wrong in every tree that shares it
+    @Override
+    public void setError(String description) {
+        throw new IllegalStateException("A " + getNodeLabel() + " is shared and cannot hold an error: " + description);
+    }
+
+    //A literal has no children, its hash is that of the node alone
+    @Override
+    public int hashCode() {
+        return hashCodeNode();
+    }
 }
@@ -17,8 +17,23 @@ public abstract class Operation extends Expression {
         return children;
     }
 
+    @Override
+    public int getChildCount() {
+        return (lhs != null ? 1 : 0) + (rhs != null ? 1 : 0);
+    }
+
+    @Override
+    public ASTNode getChild(int index) {
+        if(index == 0 && lhs != null)
+            return lhs;
+        if(index < getChildCount() && rhs != null)
+            return rhs;
+        return super.getChild(index);
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotFrozen();
         if(lhs == null) {
             lhs = (Expression) child;
         } else if(rhs == null) {
@@ -29,6 +44,7 @@ public abstract class Operation extends Expression {
 
     @Override
     public ASTNode removeChild(ASTNode child) {
+        checkNotFrozen();
         if(lhs.equals(child)) { Expression temp = lhs; lhs = null; return temp; }
         if(rhs.equals(child)) { Expression temp = lhs; rhs = null; return temp; }
         return null;
@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast;
 
+import java.util.Objects;
+
 public class PropertyName extends ASTNode {
 
     public String name;
@@ -18,4 +20,21 @@ public class PropertyName extends ASTNode {
     public String getNodeLabel() {
         return "Property: (" + name + ")";
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitPropertyName(this);
+    }
+
+    @Override
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        PropertyName that = (PropertyName) other;
+        return Objects.equals(name, that.name);
+    }
+
+    @Override
+    protected int hashCodeNode() {
+        return Objects.hash(name);
+    }
 }
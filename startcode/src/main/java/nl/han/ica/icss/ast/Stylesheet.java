@@ -3,7 +3,6 @@ package nl.han.ica.icss.ast;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 /**
  * A stylesheet is the root node of the AST, it consists of one or more statements
@@ -24,33 +23,33 @@ public class Stylesheet extends ASTNode {
 	public String getNodeLabel() {
 		return "Stylesheet";
 	}
+
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitStylesheet(this);
+	}
 	@Override
 	public ArrayList<ASTNode> getChildren() {
 		return this.body;
 	}
 	@Override
+	public int getChildCount() {
+		return body.size();
+	}
+	@Override
+	public ASTNode getChild(int index) {
+		return body.get(index);
+	}
+	@Override
 	public ASTNode addChild(ASTNode child) {
+	    	checkNotFrozen();
 	    	body.add(child);
 	    	return this;
 	}
 	@Override
 	public ASTNode removeChild(ASTNode child) {
+		checkNotFrozen();
 		body.remove(child);
 		return this;
 	}
-
-	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		Stylesheet that = (Stylesheet) o;
-		return Objects.equals(body, that.body);
-	}
-
-	@Override
-	public int hashCode() {
-
-		return Objects.hash(body);
-	}
 }
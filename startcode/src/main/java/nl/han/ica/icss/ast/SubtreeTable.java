@@ -0,0 +1,41 @@
+package nl.han.ica.icss.ast;
+
+import java.util.HashMap;
+
+/**
+ * Hash-consing table: hands out one frozen instance for every distinct subtree it is given, the way the
+ * literal classes share their values. Equal subtrees taken from the same table are the same object, so
+ * comparing them stops at the first pair and hashing them reads a kept hash.
+ *
+ * A node is shared as a whole. For the subtrees below it to be shared too they have to be interned before
+ * it, bottom-up, like the ASTListener does when it is given a table. A shared node sits in several places
+ * of the AST at once, so such an AST can be compared and hashed but not checked or transformed.
+ * The table is not thread-safe.
+ */
+public class SubtreeTable {
+
+    private final HashMap<ASTNode, ASTNode> subtrees = new HashMap<>();
+
+    /**
+     * Freezes the node and everything below it
+     * @return the subtree in the table equal to the node, or the node itself when it is the first of its kind
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ASTNode> T intern(T node) {
+        //Literals are shared by their valueOf factories already
+        if (node instanceof Literal) return node;
+
+        node.freeze();
+        ASTNode shared = subtrees.putIfAbsent(node, node);
+
+        //Equal nodes are of the same class
+        return shared != null ? (T) shared : node;
+    }
+
+    /**
+     * @return the number of distinct subtrees in the table
+     */
+    public int size() {
+        return subtrees.size();
+    }
+}
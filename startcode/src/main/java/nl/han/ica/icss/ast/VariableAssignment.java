@@ -1,7 +1,6 @@
 package nl.han.ica.icss.ast;
 
 import java.util.ArrayList;
-import java.util.Objects;
 
 /**
  * An assignment binds a expression to an identifier.
@@ -17,8 +16,14 @@ public class VariableAssignment extends ASTNode {
 		return "VariableAssignment (" + variableReference.name + ")";
 	}
 
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableAssignment(this);
+	}
+
 	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotFrozen();
 		if(variableReference == null) {
 			variableReference = (VariableReference) child;
 		} else if(expression == null) {
@@ -30,6 +35,7 @@ public class VariableAssignment extends ASTNode {
 
 	@Override
 	public ASTNode removeChild(ASTNode child) {
+		checkNotFrozen();
 		Expression temp = expression;
 		expression = null;
 		return temp;
@@ -47,17 +53,16 @@ public class VariableAssignment extends ASTNode {
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		VariableAssignment that = (VariableAssignment) o;
-		return Objects.equals(variableReference, that.variableReference) &&
-				Objects.equals(expression, that.expression);
+	public int getChildCount() {
+		return (variableReference != null ? 1 : 0) + (expression != null ? 1 : 0);
 	}
 
 	@Override
-	public int hashCode() {
-		return Objects.hash(variableReference, expression);
+	public ASTNode getChild(int index) {
+		if(index == 0 && variableReference != null)
+			return variableReference;
+		if(index < getChildCount() && expression != null)
+			return expression;
+		return super.getChild(index);
 	}
 }
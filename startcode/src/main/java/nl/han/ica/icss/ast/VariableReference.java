@@ -17,17 +17,19 @@ public class VariableReference extends Expression {
 	}
 
 	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-		if (!super.equals(o)) return false;
-		VariableReference that = (VariableReference) o;
-		return Objects.equals(name, that.name);
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableReference(this);
 	}
 
 	@Override
-	public int hashCode() {
+	protected boolean equalsNode(ASTNode other) {
+		if (!super.equalsNode(other)) return false;
+		VariableReference that = (VariableReference) other;
+		return Objects.equals(name, that.name);
+	}
 
+	@Override
+	protected int hashCodeNode() {
 		return Objects.hash(name);
 	}
 }
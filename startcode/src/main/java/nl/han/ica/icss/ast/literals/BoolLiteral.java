@@ -1,10 +1,15 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class BoolLiteral extends Literal {
-    public boolean value;
+    public static final BoolLiteral TRUE = new BoolLiteral(true);
+    public static final BoolLiteral FALSE = new BoolLiteral(false);
+
+    public final boolean value;
 
     public BoolLiteral(boolean value) {
         this.value = value;
@@ -12,6 +17,14 @@ public class BoolLiteral extends Literal {
     public BoolLiteral(String text) {
         this.value = text.equals("TRUE");
     }
+
+    public static BoolLiteral valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static BoolLiteral valueOf(String text) {
+        return valueOf(text.equals("TRUE"));
+    }
     @Override
     public String getNodeLabel() {
         String textValue = value ? "TRUE" : "FALSE";
@@ -19,16 +32,19 @@ public class BoolLiteral extends Literal {
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        BoolLiteral that = (BoolLiteral) o;
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitBoolLiteral(this);
+    }
+
+    @Override
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        BoolLiteral that = (BoolLiteral) other;
         return value == that.value;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeNode() {
         return Objects.hash(value);
     }
 }
@@ -1,31 +1,55 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
 
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ColorLiteral extends Literal {
-    public String value;
+    //Sheets use few distinct colors many times, the cache stops growing once it holds MAX_CACHED of them
+    private static final int MAX_CACHED = 1 << 16;
+    private static final ConcurrentHashMap<String, ColorLiteral> CACHE = new ConcurrentHashMap<>();
+
+    public final String value;
 
     public ColorLiteral(String value) {
         this.value = value;
     }
+
+    /**
+     * @return the literal every occurrence of the color shares
+     */
+    public static ColorLiteral valueOf(String value) {
+        ColorLiteral literal = CACHE.get(value);
+        if (literal != null) return literal;
+
+        literal = new ColorLiteral(value);
+        if (CACHE.size() >= MAX_CACHED) return literal;
+
+        ColorLiteral cached = CACHE.putIfAbsent(value, literal);
+        return cached != null ? cached : literal;
+    }
     @Override
     public String getNodeLabel() {
         return "Color literal (" + value + ")";
     }
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitColorLiteral(this);
+    }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        ColorLiteral that = (ColorLiteral) o;
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        ColorLiteral that = (ColorLiteral) other;
         return Objects.equals(value, that.value);
     }
-    @Override
-    public int hashCode() {
 
+    @Override
+    protected int hashCodeNode() {
         return Objects.hash(value);
     }
 }
@@ -0,0 +1,29 @@
+package nl.han.ica.icss.ast.literals;
+
+import nl.han.ica.icss.ast.Literal;
+
+import java.util.function.IntFunction;
+
+/**
+ * The canonical literals for the values most sheets use, created up front like Integer.valueOf's cache.
+ * Values outside the range get a literal of their own.
+ */
+final class IntLiteralCache<T extends Literal> {
+
+    private static final int LOW = -128;
+    private static final int HIGH = 1024;
+
+    private final IntFunction<T> constructor;
+    private final Literal[] cache = new Literal[HIGH - LOW + 1];
+
+    IntLiteralCache(IntFunction<T> constructor) {
+        this.constructor = constructor;
+        for (int i = 0; i < cache.length; i++) cache[i] = constructor.apply(LOW + i);
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int value) {
+        if (value >= LOW && value <= HIGH) return (T) cache[value - LOW];
+        return constructor.apply(value);
+    }
+}
@@ -1,11 +1,15 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
 
 import java.util.Objects;
 
 public class PixelLiteral extends Literal {
-    public int value;
+    private static final IntLiteralCache<PixelLiteral> CACHE = new IntLiteralCache<>(PixelLiteral::new);
+
+    public final int value;
 
     public PixelLiteral(int value) {
         this.value = value;
@@ -13,22 +17,37 @@ public class PixelLiteral extends Literal {
     public PixelLiteral(String text) {
         this.value = Integer.parseInt(text.substring(0, text.length() - 2));
     }
+
+    /**
+     * @return the canonical literal for common values, a new one for the others
+     */
+    public static PixelLiteral valueOf(int value) {
+        return CACHE.get(value);
+    }
+
+    public static PixelLiteral valueOf(String text) {
+        return valueOf(Integer.parseInt(text.substring(0, text.length() - 2)));
+    }
+
     @Override
     public String getNodeLabel() {
         return "Pixel literal (" + value + ")";
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        PixelLiteral that = (PixelLiteral) o;
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitPixelLiteral(this);
+    }
+
+    @Override
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        PixelLiteral that = (PixelLiteral) other;
         return value == that.value;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeNode() {
         return Objects.hash(value);
     }
 }
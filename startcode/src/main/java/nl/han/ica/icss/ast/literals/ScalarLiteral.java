@@ -1,11 +1,15 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
 
 import java.util.Objects;
 
 public class ScalarLiteral extends Literal {
-    public int value;
+    private static final IntLiteralCache<ScalarLiteral> CACHE = new IntLiteralCache<>(ScalarLiteral::new);
+
+    public final int value;
 
     public ScalarLiteral(int value) {
         this.value = value;
@@ -13,22 +17,37 @@ public class ScalarLiteral extends Literal {
     public ScalarLiteral(String text) {
         this.value = Integer.parseInt(text);
     }
+
+    /**
+     * @return the canonical literal for common values, a new one for the others
+     */
+    public static ScalarLiteral valueOf(int value) {
+        return CACHE.get(value);
+    }
+
+    public static ScalarLiteral valueOf(String text) {
+        return valueOf(Integer.parseInt(text));
+    }
+
     @Override
     public String getNodeLabel() {
         return "Scalar literal (" + value + ")";
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        ScalarLiteral that = (ScalarLiteral) o;
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitScalarLiteral(this);
+    }
+
+    @Override
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        ScalarLiteral that = (ScalarLiteral) other;
         return value == that.value;
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeNode() {
         return Objects.hash(value);
     }
 }
@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -16,20 +18,24 @@ public class ClassSelector extends Selector {
         return "ClassSelector " + cls;
     }
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitClassSelector(this);
+    }
+
     public String toString() {
         return cls;
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        ClassSelector that = (ClassSelector) o;
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        ClassSelector that = (ClassSelector) other;
         return Objects.equals(cls, that.cls);
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeNode() {
         return Objects.hash(cls);
     }
 }
@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -14,21 +16,24 @@ public class IdSelector extends Selector {
     public String getNodeLabel() {
         return "IdSelector " + id;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitIdSelector(this);
+    }
     public String toString() {
         return id;
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        IdSelector that = (IdSelector) o;
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        IdSelector that = (IdSelector) other;
         return Objects.equals(id, that.id);
     }
 
     @Override
-    public int hashCode() {
+    protected int hashCodeNode() {
         return Objects.hash(id);
     }
 }
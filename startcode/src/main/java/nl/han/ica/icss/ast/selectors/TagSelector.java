@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -14,22 +16,24 @@ public class TagSelector extends Selector {
     public String getNodeLabel() {
         return "TagSelector " + tag;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitTagSelector(this);
+    }
     public String toString() {
         return tag;
     }
 
     @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        TagSelector that = (TagSelector) o;
+    protected boolean equalsNode(ASTNode other) {
+        if (!super.equalsNode(other)) return false;
+        TagSelector that = (TagSelector) other;
         return Objects.equals(tag, that.tag);
     }
 
     @Override
-    public int hashCode() {
-
+    protected int hashCodeNode() {
         return Objects.hash(tag);
     }
 }
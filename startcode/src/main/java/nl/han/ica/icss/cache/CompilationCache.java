@@ -0,0 +1,299 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Pipeline;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of compilation results, stored in one file per input under a directory.
+ * Entries are addressed by the SHA-256 of the compiler version and the input text, so a
+ * changed input or a new compiler never sees a stale result.
+ *
+ * Several processes can share a directory: entries are written to a temporary file and moved
+ * into place, readers see either a complete entry or none at all. Every hit touches the
+ * modification time of the entry and the least recently used entries are evicted once the
+ * directory grows beyond its size bound.
+ */
+public class CompilationCache {
+
+    public static final String ENTRY_EXTENSION = ".entry";
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    //Bump when the layout of an entry file changes
+    private static final int FORMAT_VERSION = 1;
+
+    //Lengths are read from the entry files, a bound keeps a corrupt one from making the reader allocate gigabytes
+    private static final int MAX_STRING_BYTES = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final String compilerVersion;
+    private final int maxStringBytes;
+
+    //Estimate of the directory size, other processes sharing the directory are only seen when evicting
+    private final AtomicLong size = new AtomicLong();
+
+    public CompilationCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES, Pipeline.VERSION);
+    }
+
+    /**
+     * @param directory where the entries are stored, created when missing
+     * @param maxBytes size the directory is kept under
+     * @param compilerVersion part of every key, a different version never shares entries
+     */
+    public CompilationCache(Path directory, long maxBytes, String compilerVersion) throws IOException {
+        this(directory, maxBytes, compilerVersion, MAX_STRING_BYTES);
+    }
+
+    /**
+     * @param maxStringBytes longest error or CSS text in UTF-8 an entry can hold
+     */
+    CompilationCache(Path directory, long maxBytes, String compilerVersion, int maxStringBytes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        this.compilerVersion = compilerVersion;
+        this.maxStringBytes = maxStringBytes;
+
+        size.set(entries().stream().mapToLong(entry -> entry.size).sum());
+    }
+
+    /**
+     * Returns the stored result for an input, or compiles it and stores the result
+     * @param source the ICSS text
+     * @param compiler compiles the text on a miss
+     */
+    public Result compile(String source, Compiler compiler) throws IOException {
+        String key = keyFor(source);
+
+        Result cached = lookup(key);
+        if (cached != null) return cached;
+
+        Result result = compiler.compile(source);
+        store(key, result);
+        return result;
+    }
+
+    public String keyFor(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder key = new StringBuilder(64);
+            for (byte b : digest.digest()) key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the stored result, or null when there is none
+     */
+    public Result lookup(String key) throws IOException {
+        Path path = pathFor(key);
+
+        Result result;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            result = read(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (EOFException | StreamCorruptedException e) {
+            //Not written by this version, drop it so it is replaced
+            Files.deleteIfExists(path);
+            return null;
+        }
+
+        if (result == null) {
+            Files.deleteIfExists(path);
+            return null;
+        }
+
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            //Evicted by someone else in the meantime, the result is still good
+        }
+        return result;
+    }
+
+    /**
+     * Stores the result under the key. A result with a text longer than an entry can hold is not stored,
+     * reading it back would fail and it would be compiled and stored again on every lookup.
+     */
+    public void store(String key, Result result) throws IOException {
+        if (!fits(result)) return;
+
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                write(out, result);
+            }
+
+            long written = Files.size(temporary);
+            moveIntoPlace(temporary, pathFor(key));
+
+            if (size.addAndGet(written) > maxBytes) evict();
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the directory is at most three quarters of its bound,
+     * so a full cache does not evict on every store
+     */
+    public synchronized void evict() throws IOException {
+        List<Entry> entries = entries();
+        entries.sort(Comparator.comparing((Entry entry) -> entry.lastUsed));
+
+        long total = entries.stream().mapToLong(entry -> entry.size).sum();
+        long target = maxBytes / 4 * 3;
+
+        for (Entry entry : entries) {
+            if (total <= target) break;
+
+            Files.deleteIfExists(entry.path);
+            total -= entry.size;
+        }
+
+        size.set(total);
+    }
+
+    public long getSize() {
+        return size.get();
+    }
+
+    private void moveIntoPlace(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileAlreadyExistsException e) {
+            //Another build stored the same input, the entries are identical
+        }
+    }
+
+    private Path pathFor(String key) {
+        return directory.resolve(key + ENTRY_EXTENSION);
+    }
+
+    private List<Entry> entries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Entry> entries = new ArrayList<>();
+            for (Path path : files.filter(path -> path.getFileName().toString().endsWith(ENTRY_EXTENSION))
+                                  .collect(Collectors.toList())) {
+                try {
+                    entries.add(new Entry(path, Files.size(path), Files.getLastModifiedTime(path)));
+                } catch (NoSuchFileException e) {
+                    //Evicted by another process while listing
+                }
+            }
+            return entries;
+        }
+    }
+
+    private static void write(DataOutputStream out, Result result) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(result.errors.size());
+        for (String error : result.errors) writeString(out, error);
+
+        out.writeBoolean(result.css != null);
+        if (result.css != null) writeString(out, result.css);
+    }
+
+    private boolean fits(Result result) {
+        for (String error : result.errors) {
+            if (!fits(error)) return false;
+        }
+        return result.css == null || fits(result.css);
+    }
+
+    //A char takes at most three bytes in UTF-8, only long texts are encoded to find out
+    private boolean fits(String text) {
+        return text.length() <= maxStringBytes / 3 || text.getBytes(StandardCharsets.UTF_8).length <= maxStringBytes;
+    }
+
+    private Result read(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) return null;
+
+        int errorCount = in.readInt();
+        if (errorCount < 0) throw new StreamCorruptedException("Negative error count " + errorCount);
+
+        //Not presized, a corrupt count runs into the end of the file instead of allocating the list up front
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < errorCount; i++) errors.add(readString(in));
+
+        String css = in.readBoolean() ? readString(in) : null;
+        return new Result(errors, css);
+    }
+
+    //writeUTF is limited to 64 KB, generated CSS easily exceeds that
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new StreamCorruptedException("Negative string length " + length);
+        if (length > maxStringBytes) throw new StreamCorruptedException("String length " + length + " exceeds " + maxStringBytes);
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public interface Compiler {
+        Result compile(String source) throws IOException;
+    }
+
+    /**
+     * The outcome of compiling one input: the errors reported by the pipeline and,
+     * when there were none, the generated CSS.
+     */
+    public static class Result {
+
+        public final List<String> errors;
+        public final String css;
+
+        public Result(List<String> errors, String css) {
+            this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+            this.css = css;
+        }
+
+        public boolean succeeded() {
+            return errors.isEmpty();
+        }
+    }
+
+    private static class Entry {
+
+        final Path path;
+        final long size;
+        final FileTime lastUsed;
+
+        Entry(Path path, long size, FileTime lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
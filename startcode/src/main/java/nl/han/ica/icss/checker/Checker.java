@@ -1,6 +1,5 @@
 package nl.han.ica.icss.checker;
 
-import nl.han.ica.datastructures.HANStack;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
 import nl.han.ica.icss.ast.operations.AddOperation;
@@ -8,149 +7,195 @@ import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.types.ExpressionType;
 
-import java.util.HashMap;
 import java.util.Objects;
 
 public class Checker {
 
-    private final VariableManager varManager = new VariableManager();
-    private final Scope scopeTree = new Scope();
-    private final HANStack<Scope> scopeContainer = new HANStack<>();
+    private final VariableManager varManager;
+    private final TreeCheck treeCheck = new TreeCheck();
+    private final NodeCheck nodeCheck = new NodeCheck();
+    private int errorCount = 0;
 
-    public void check(AST ast) {
-        varManager.variableTypes.clear();
-        scopeContainer.push(scopeTree);
-        walkASTRecursive(ast.root);
+    private DependencyGraph dependencies = new DependencyGraph();
+    //The top-level statement being checked, null when nodes are checked one by one
+    private ASTNode statement = null;
+
+    public Checker() {
+        this(new VariableManager());
     }
 
-    private void walkASTRecursive(ASTNode astNode){
+    /**
+     * @param varManager symbol table to declare the variables in, the Evaluator passes its own
+     *                   when checking and evaluating in a single traversal
+     */
+    public Checker(VariableManager varManager) {
+        this.varManager = varManager;
+    }
 
-        varManager.determineExpTypeOfVarAssignment(astNode);
+    public void check(AST ast) {
+        dependencies = new DependencyGraph();
 
-        checkVarRefsDeclared(astNode);
-        checkOperation(astNode);
-        checkPropertyDeclaration(astNode);
-        checkIfClause(astNode);
+        for (int i = 0; i < ast.root.getChildCount(); i++) {
+            checkStatement(ast.root.getChild(i));
+        }
+    }
 
-        checkScope(astNode);
+    /**
+     * Checks a top-level statement and adds what it uses and assigns to the dependencies
+     */
+    void checkStatement(ASTNode statement) {
+        this.statement = statement;
+        treeCheck.walk(statement);
+        this.statement = null;
+    }
 
-        for (ASTNode childNode: astNode.getChildren()) walkASTRecursive(childNode);
+    /**
+     * @return the variables used and assigned by every top-level statement of the last checked AST
+     */
+    public DependencyGraph getDependencies() {
+        return dependencies;
+    }
 
-        if(nodeAffectsScope(astNode)) scopeContainer.pop();
+    /**
+     * Runs the checks of a single node without visiting its children or opening a scope,
+     * for passes that walk the tree and manage the scopes themselves
+     */
+    public void checkNode(ASTNode node) {
+        node.accept(nodeCheck);
+    }
 
+    /**
+     * Checks an expression and all of its operands
+     */
+    public void checkExpression(Expression expression) {
+        treeCheck.walk(expression);
     }
 
-    private void checkScope(ASTNode astNode) {
-        if(nodeAffectsScope(astNode)) {
-            Scope scope = new Scope();
-            scope.parent = (Scope) scopeContainer.peek();
-            ((Scope) scopeContainer.peek()).subScopes.add(scope);
-            scopeContainer.push(scope);
-        }
+    /**
+     * @return whether an error was reported so far, including the references the symbol table found undeclared
+     */
+    public boolean hasErrors() {
+        return errorCount > 0 || varManager.hasErrors();
+    }
 
-        if(astNode instanceof VariableAssignment) {
-            ((Scope) scopeContainer.peek()).varAssignments.add((VariableAssignment) astNode);
+    private class NodeCheck extends ASTBaseVisitor<Void> {
+
+        @Override
+        public Void visitNode(ASTNode node) {
+            return null;
         }
 
-        if(astNode instanceof VariableReference) {
-            if(findAssignmentInScope(((VariableReference) astNode).name) == null) {
-                astNode.setError("Scope error: variable not defined in current scope.");
-            }
+        @Override
+        public Void visitIfClause(IfClause node) {
+            checkIfClause(node);
+            return null;
         }
-    }
 
-    private VariableAssignment findAssignmentInScope(String name) {
-        Scope currentScope = (Scope) scopeContainer.peek();
+        @Override
+        public Void visitVariableAssignment(VariableAssignment node) {
+            varManager.determineExpTypeOfVarAssignment(node);
+            if(statement != null) dependencies.addAssignment(statement, node.variableReference.name);
+            return null;
+        }
 
-        while(currentScope != null) {
-            for (VariableAssignment assignment: currentScope.varAssignments) {
-                if(Objects.equals(assignment.variableReference.name, name)) return assignment;
-            }
+        @Override
+        public Void visitDeclaration(Declaration node) {
+            checkPropertyDeclaration(node);
+            return null;
+        }
 
-            currentScope = currentScope.parent;
+        @Override
+        public Void visitOperation(Operation node) {
+            checkOperation(node);
+            return null;
         }
 
-        return null;
+        @Override
+        public Void visitVariableReference(VariableReference node) {
+            checkScope(node);
+            if(statement != null) dependencies.addUse(statement, node.name);
+            return null;
+        }
     }
 
-    private void checkIfClause(ASTNode astNode) {
-        if(astNode instanceof IfClause){
-            Expression conditionalExp = ((IfClause) astNode).conditionalExpression;
+    //Every stylerule, if-clause and else-clause body gets its own scope
+    private class TreeCheck extends ASTWalker {
 
-            if(conditionalExp instanceof VariableReference) {
-                for (int i = 0; i < varManager.variableTypes.getSize(); i++) {
-                    HashMap<String, ExpressionType> varType = varManager.variableTypes.get(i);
+        @Override
+        protected boolean enter(ASTNode node) {
+            node.accept(nodeCheck);
 
-                    if (varTypeMatchesWithConditionalExp((VariableReference) conditionalExp, varType)){
-                        if(!declarationIsOfTypeBool((VariableReference) conditionalExp, varType)){
-                            astNode.setError("Variable reference must be of type boolean.");
-                        }
-                    }
-                }
-            } else if(conditionalExp instanceof Operation){
-                astNode.setError("Conditional expression cannot be calculated.");
-            } else if(!(conditionalExp instanceof BoolLiteral)){
-                astNode.setError("Conditional expression must be a boolean.");
-            }
-        }
-    }
+            if(node instanceof VariableAssignment) {
+                VariableAssignment assignment = (VariableAssignment) node;
 
-    private void checkPropertyDeclaration(ASTNode astNode) {
-        if(astNode instanceof Declaration){
-            if (propertyIsAColorAndNotAssignedByColorLiteral((Declaration) astNode)){
-                astNode.setError("Color/background-color property must be assigned by a color literal.");
+                //The name is checked like any reference, but assigning a variable is no use of it
+                checkScope(assignment.variableReference);
+                if(assignment.expression != null) walk(assignment.expression);
+                return false;
             }
 
-            if(propertyIsWidthAndNotAssignedByPixelLiteral((Declaration) astNode)){
-                astNode.setError("Width/height property must be assigned with a pixel literal.");
-            }
+            if(opensScope(node)) varManager.openScope();
+            return true;
         }
-    }
 
-    private void checkOperation(ASTNode astNode) {
-        if(astNode instanceof Operation) {
-            if(operationHasColorLiteral((Operation) astNode)){
-                astNode.setError("TypeError: Cannot operate on a color literal");
-            }
+        @Override
+        protected void exit(ASTNode node) {
+            if(opensScope(node)) varManager.closeScope();
         }
 
-        if(astNode instanceof SubtractOperation || astNode instanceof AddOperation) {
-            if(isAddOrSubtractOperationWithDistinctLiterals((Operation) astNode)) {
-                astNode.setError("TypeError: Cannot add or subtract with distinct literals.");
-            }
+        private boolean opensScope(ASTNode node) {
+            return node instanceof Stylerule || node instanceof IfClause || node instanceof ElseClause;
         }
+    }
 
-        if(astNode instanceof MultiplyOperation) {
-            if(isMultiplyOperationWithoutScalars((MultiplyOperation) astNode)) {
-                astNode.setError("TypeError: Cannot multiply with only non scalars");
-            }
+    private void checkScope(VariableReference reference) {
+        if(varManager.getCurrentScope().resolve(reference.name) == null) {
+            report(reference, "Scope error: variable not defined in current scope.");
         }
     }
 
-    private void checkVarRefsDeclared(ASTNode astNode){
-        if(astNode instanceof VariableReference) {
-            if(!isVarRefDeclared(astNode)) {
-                astNode.setError("Variable is not declared.");
+    private void checkIfClause(IfClause ifClause) {
+        Expression conditionalExp = ifClause.conditionalExpression;
+
+        if(conditionalExp instanceof VariableReference) {
+            ExpressionType type = varManager.getVariableType(((VariableReference) conditionalExp).name);
+
+            if(type != null && type != ExpressionType.BOOL){
+                report(ifClause, "Variable reference must be of type boolean.");
             }
+        } else if(conditionalExp instanceof Operation){
+            report(ifClause, "Conditional expression cannot be calculated.");
+        } else if(!(conditionalExp instanceof BoolLiteral)){
+            report(ifClause, "Conditional expression must be a boolean.");
         }
     }
 
-    private boolean isVarRefDeclared(ASTNode astNode) {
-        for (int i = 0; i < varManager.variableTypes.getSize(); i++) {
-            if(varManager.variableTypes.get(i).get(((VariableReference) astNode).name) != null){
-                return true;
-            }
+    private void checkPropertyDeclaration(Declaration declaration) {
+        if (propertyIsAColorAndNotAssignedByColorLiteral(declaration)){
+            report(declaration, "Color/background-color property must be assigned by a color literal.");
         }
 
-        return false;
+        if(propertyIsWidthAndNotAssignedByPixelLiteral(declaration)){
+            report(declaration, "Width/height property must be assigned with a pixel literal.");
+        }
     }
 
-    private boolean declarationIsOfTypeBool(VariableReference conditionalExp, HashMap<String, ExpressionType> varType) {
-        return varType.get(conditionalExp.name) == ExpressionType.BOOL;
-    }
+    private void checkOperation(Operation operation) {
+        if(operationHasColorLiteral(operation)){
+            report(operation, "TypeError: Cannot operate on a color literal");
+        }
 
-    private boolean varTypeMatchesWithConditionalExp(VariableReference conditionalExp, HashMap<String, ExpressionType> variableType) {
-        return variableType.containsKey(conditionalExp.name);
+        if(operation instanceof SubtractOperation || operation instanceof AddOperation) {
+            if(isAddOrSubtractOperationWithDistinctLiterals(operation)) {
+                report(operation, "TypeError: Cannot add or subtract with distinct literals.");
+            }
+        }
+
+        if(operation instanceof MultiplyOperation) {
+            if(isMultiplyOperationWithoutScalars((MultiplyOperation) operation)) {
+                report(operation, "TypeError: Cannot multiply with only non scalars");
+            }
+        }
     }
 
     private boolean operationHasColorLiteral(Operation operation) {
@@ -171,10 +216,6 @@ public class Checker {
                lhsExpType != ExpressionType.SCALAR;
     }
 
-    private boolean nodeAffectsScope(ASTNode astNode) {
-        return astNode instanceof Stylerule || astNode instanceof IfClause || astNode instanceof ElseClause;
-    }
-
     private boolean propertyIsWidthAndNotAssignedByPixelLiteral(Declaration astNode) {
         ExpressionType expressionType = varManager.getExpressionType(astNode.expression);
 
@@ -190,4 +231,9 @@ public class Checker {
                 Objects.equals(declaration.property.name, "background-color")) &&
                 expressionType != ExpressionType.COLOR;
     }
+
+    private void report(ASTNode node, String description) {
+        node.setError(description);
+        errorCount++;
+    }
 }
@@ -0,0 +1,58 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.ASTNode;
+
+import java.util.*;
+
+/**
+ * Which variables every top-level statement of a stylesheet uses and assigns, and the reverse:
+ * which statements use a variable. The Checker fills it while checking the whole AST.
+ *
+ * Statements are compared by identity, two rules with the same content are different statements.
+ */
+public class DependencyGraph {
+
+    private final Map<ASTNode, Set<String>> uses = new IdentityHashMap<>();
+    private final Map<ASTNode, Set<String>> assignments = new IdentityHashMap<>();
+    private final Map<String, List<ASTNode>> users = new HashMap<>();
+
+    void addUse(ASTNode statement, String variable) {
+        if (uses.computeIfAbsent(statement, key -> new LinkedHashSet<>()).add(variable)) {
+            users.computeIfAbsent(variable, key -> new ArrayList<>()).add(statement);
+        }
+    }
+
+    void addAssignment(ASTNode statement, String variable) {
+        assignments.computeIfAbsent(statement, key -> new LinkedHashSet<>()).add(variable);
+    }
+
+    /**
+     * Copies what the other graph holds for the statement, so graphs filled for separate
+     * statements can be combined. Combine them in source order to keep getUsers in source order.
+     */
+    void addAll(DependencyGraph other, ASTNode statement) {
+        for (String variable : other.getUses(statement)) addUse(statement, variable);
+        for (String variable : other.getAssignments(statement)) addAssignment(statement, variable);
+    }
+
+    /**
+     * @return the variables referenced anywhere in the statement, the names being assigned do not count
+     */
+    public Set<String> getUses(ASTNode statement) {
+        return Collections.unmodifiableSet(uses.getOrDefault(statement, Collections.emptySet()));
+    }
+
+    /**
+     * @return the variables assigned anywhere in the statement, including inside if and else clauses
+     */
+    public Set<String> getAssignments(ASTNode statement) {
+        return Collections.unmodifiableSet(assignments.getOrDefault(statement, Collections.emptySet()));
+    }
+
+    /**
+     * @return the statements that reference the variable, in source order
+     */
+    public List<ASTNode> getUsers(String variable) {
+        return Collections.unmodifiableList(users.getOrDefault(variable, Collections.emptyList()));
+    }
+}
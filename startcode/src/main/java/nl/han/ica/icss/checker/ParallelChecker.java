@@ -0,0 +1,158 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.VariableAssignment;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Checks the same as the Checker, with the style rules checked concurrently on a fork/join pool.
+ *
+ * The top-level variable assignments are checked first, in source order. A rule only sees the global
+ * variables assigned before it and whatever it declares itself lives in scopes of its own, so once
+ * the global scope at every rule is known the rules no longer depend on each other. Every rule is checked
+ * against a view of the global scope at its position, by a Checker of its own. The views share a single
+ * history of the global assignments, so they cost nothing per rule however often assignments and rules alternate.
+ *
+ * The errors end up on the nodes like with the Checker and AST.getErrors collects them in source order,
+ * so they are the same as those of a sequential check. So are the dependencies. The exception is a reference
+ * to a variable that is assigned inside an earlier rule: a reference takes the type of the latest assignment,
+ * which then depends on that rule, so a sheet with one is checked again sequentially.
+ */
+public class ParallelChecker {
+
+    //Rules checked by a single task, smaller tasks cost more to schedule than checking the rules does
+    private static final int RULES_PER_TASK = 16;
+
+    private final ForkJoinPool pool;
+
+    private DependencyGraph dependencies = new DependencyGraph();
+    private boolean errors = false;
+
+    public ParallelChecker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelChecker(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void check(AST ast) {
+        VariableManager globals = new VariableManager();
+        Checker globalChecker = new Checker(globals);
+
+        List<ASTNode> statements = ast.root.getChildren();
+        List<RuleCheck> rules = new ArrayList<>();
+
+        //Consecutive rules share the view, it only changes with a global assignment
+        ScopeHistory history = new ScopeHistory();
+        Scope globalScope = null;
+        for (ASTNode statement : statements) {
+            if (statement instanceof Stylerule) {
+                if (globalScope == null) globalScope = history.view();
+                rules.add(new RuleCheck(statement, globalScope));
+            } else {
+                globalChecker.checkStatement(statement);
+                if (statement instanceof VariableAssignment) record(history, globals, (VariableAssignment) statement);
+                globalScope = null;
+            }
+        }
+
+        pool.invoke(new RuleChecks(rules, 0, rules.size()));
+
+        //A reference takes the type of the latest assignment to its variable, which a rule checked on its own
+        //does not see when it is made inside an earlier rule. Such a sheet is checked again in order.
+        if (refersToEarlierRules(statements, rules, globalChecker)) {
+            ast.clearErrors();
+            Checker checker = new Checker();
+            checker.check(ast);
+            dependencies = checker.getDependencies();
+            errors = checker.hasErrors();
+            return;
+        }
+
+        //Merged in source order, like a sequential check fills the graph
+        dependencies = new DependencyGraph();
+        errors = globalChecker.hasErrors();
+        int rule = 0;
+        for (ASTNode statement : statements) {
+            Checker checker = statement instanceof Stylerule ? rules.get(rule++).checker : globalChecker;
+            dependencies.addAll(checker.getDependencies(), statement);
+            errors |= checker.hasErrors();
+        }
+    }
+
+    private void record(ScopeHistory history, VariableManager globals, VariableAssignment assignment) {
+        String name = assignment.variableReference.name;
+        history.declare(assignment, globals.getCurrentScope().resolveType(name));
+    }
+
+    private boolean refersToEarlierRules(List<ASTNode> statements, List<RuleCheck> rules, Checker globalChecker) {
+        Set<String> assignedInRules = new HashSet<>();
+        int rule = 0;
+
+        for (ASTNode statement : statements) {
+            Checker checker = statement instanceof Stylerule ? rules.get(rule++).checker : globalChecker;
+            for (String name : checker.getDependencies().getUses(statement)) {
+                if (assignedInRules.contains(name)) return true;
+            }
+            if (statement instanceof Stylerule) assignedInRules.addAll(checker.getDependencies().getAssignments(statement));
+        }
+        return false;
+    }
+
+    /**
+     * @return the variables used and assigned by every top-level statement of the last checked AST
+     */
+    public DependencyGraph getDependencies() {
+        return dependencies;
+    }
+
+    public boolean hasErrors() {
+        return errors;
+    }
+
+    private static class RuleCheck {
+
+        final ASTNode rule;
+        final Checker checker;
+
+        RuleCheck(ASTNode rule, Scope globalScope) {
+            this.rule = rule;
+            this.checker = new Checker(new VariableManager(globalScope));
+        }
+    }
+
+    private static class RuleChecks extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<RuleCheck> rules;
+        private final int from;
+        private final int to;
+
+        RuleChecks(List<RuleCheck> rules, int from, int to) {
+            this.rules = rules;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= RULES_PER_TASK) {
+                for (int i = from; i < to; i++) rules.get(i).checker.checkStatement(rules.get(i).rule);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RuleChecks(rules, from, middle), new RuleChecks(rules, middle, to));
+        }
+    }
+}
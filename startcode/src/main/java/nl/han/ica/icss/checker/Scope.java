@@ -1,13 +1,88 @@
 package nl.han.ica.icss.checker;
 
 import nl.han.ica.icss.ast.VariableAssignment;
+import nl.han.ica.icss.ast.types.ExpressionType;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
+/**
+ * One level of the symbol table. Variables are indexed by name, lookups that miss
+ * continue in the enclosing scopes that declare variables, so resolving a reference costs
+ * O(number of those scopes) no matter how deep the scopes without variables nest.
+ */
 public class Scope {
 
-    List<VariableAssignment> varAssignments = new ArrayList<>();
-    List<Scope> subScopes = new ArrayList<>();
-    Scope parent = null;
-}
\ No newline at end of file
+    final HashMap<String, VariableAssignment> varAssignments = new HashMap<>();
+    final HashMap<String, ExpressionType> varTypes = new HashMap<>();
+    final List<Scope> subScopes = new ArrayList<>();
+    final Scope parent;
+    //Nearest enclosing scope with variables. Only the innermost scope can declare, so the scopes
+    //between this one and that one stay empty as long as this one is open.
+    private final Scope enclosing;
+
+    public Scope() {
+        this(null);
+    }
+
+    public Scope(Scope parent) {
+        this.parent = parent;
+        this.enclosing = parent == null || parent.declaresVariables() ? parent : parent.enclosing;
+    }
+
+    /**
+     * Binds the variable in this scope, a later assignment to the same name replaces the earlier one
+     * @param assignment the assignment declaring the variable
+     * @param type the type of the assigned expression
+     */
+    public void declare(VariableAssignment assignment, ExpressionType type) {
+        varAssignments.put(assignment.variableReference.name, assignment);
+        varTypes.put(assignment.variableReference.name, type);
+    }
+
+    /**
+     * Finds the assignment of a variable in this scope or the nearest enclosing one
+     * @param name name of the variable
+     * @return the assignment, or null when the variable is not in scope
+     */
+    public VariableAssignment resolve(String name) {
+        for (Scope scope = this; scope != null; scope = scope.enclosing) {
+            VariableAssignment assignment = scope.assignmentOf(name);
+            if (assignment != null) return assignment;
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the type of a variable in this scope or the nearest enclosing one
+     * @param name name of the variable
+     * @return the type, or null when the variable is not in scope
+     */
+    public ExpressionType resolveType(String name) {
+        for (Scope scope = this; scope != null; scope = scope.enclosing) {
+            ExpressionType type = scope.typeOf(name);
+            if (type != null) return type;
+        }
+
+        return null;
+    }
+
+    //The lookups in this scope alone, a scope that keeps its variables elsewhere overrides all three
+    VariableAssignment assignmentOf(String name) {
+        return varAssignments.get(name);
+    }
+
+    ExpressionType typeOf(String name) {
+        return varTypes.get(name);
+    }
+
+    boolean declaresVariables() {
+        return !varAssignments.isEmpty();
+    }
+
+    public Scope getParent() {
+        return parent;
+    }
+}
@@ -0,0 +1,96 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.VariableAssignment;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Every state a scope went through, e.g. the global scope at every rule of a sheet. Each assignment is kept
+ * once with the number of assignments made before it, a view of the scope at some point resolves a name
+ * to the last assignment before that point. Views at every rule together cost no more than the assignments,
+ * however often assignments and rules alternate.
+ */
+class ScopeHistory {
+
+    private final HashMap<String, List<Binding>> bindings = new HashMap<>();
+    private int declared = 0;
+
+    /**
+     * Binds the variable from now on, views taken before keep resolving it like they did
+     */
+    void declare(VariableAssignment assignment, ExpressionType type) {
+        bindings.computeIfAbsent(assignment.variableReference.name, name -> new ArrayList<>())
+                .add(new Binding(declared++, assignment, type));
+    }
+
+    /**
+     * @return a scope without parent that resolves like the scope does now. It must not declare variables itself.
+     */
+    Scope view() {
+        return new View(declared);
+    }
+
+    //Bindings of a name are in declaration order, the last one declared before the point is found by binary search
+    private Binding find(String name, int point) {
+        List<Binding> history = bindings.get(name);
+        if (history == null) return null;
+
+        int low = 0;
+        int high = history.size() - 1;
+        Binding found = null;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Binding binding = history.get(middle);
+            if (binding.index < point) {
+                found = binding;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private static class Binding {
+
+        final int index;
+        final VariableAssignment assignment;
+        final ExpressionType type;
+
+        Binding(int index, VariableAssignment assignment, ExpressionType type) {
+            this.index = index;
+            this.assignment = assignment;
+            this.type = type;
+        }
+    }
+
+    private class View extends Scope {
+
+        //Number of assignments this view sees
+        private final int point;
+
+        View(int point) {
+            this.point = point;
+        }
+
+        @Override
+        VariableAssignment assignmentOf(String name) {
+            Binding binding = find(name, point);
+            return binding != null ? binding.assignment : null;
+        }
+
+        @Override
+        ExpressionType typeOf(String name) {
+            Binding binding = find(name, point);
+            return binding != null ? binding.type : null;
+        }
+
+        @Override
+        boolean declaresVariables() {
+            return point > 0;
+        }
+    }
+}
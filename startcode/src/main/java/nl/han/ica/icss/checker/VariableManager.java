@@ -6,50 +6,246 @@ import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
 import nl.han.ica.icss.ast.types.ExpressionType;
 
-import java.util.HashMap;
+import java.util.*;
 
 public class VariableManager {
 
-    public final IHANLinkedList<HashMap<String, ExpressionType>> variableTypes = new HANLinkedList<>();
+    public final IHANLinkedList<HashMap<String, Literal>> variableValues;
 
-    public final IHANLinkedList<HashMap<String, Literal>> variableValues = new HANLinkedList();
+    //Symbol table, without calls to openScope every variable lives in the global scope
+    private Scope currentScope;
 
-    public void determineExpTypeOfVarAssignment(ASTNode astNode){
-        if (astNode instanceof VariableAssignment) {
-            HashMap<String, ExpressionType> variableAssignment = new HashMap<>();
+    //Type of the latest assignment to every variable regardless of scope, references are typed like the Evaluator resolves their values
+    private final HashMap<String, ExpressionType> latestTypes;
 
-            variableAssignment.put(
-                    ((VariableAssignment) astNode).variableReference.name,
-                    getExpressionType(((VariableAssignment) astNode).expression));
+    //References marked as not declared while inferring a type, the Checker counts them as its own errors
+    private int errorCount = 0;
 
-            variableTypes.addFirst(variableAssignment);
+    //Variables in the map the last compact() merged the values into, a merge only pays off once more were assigned since
+    private static final int MIN_VALUES_TO_MERGE = 16;
+    private int mergedValues = 0;
+
+    public VariableManager() {
+        this(new HANLinkedList<>(), new HashMap<>(), new Scope());
+    }
+
+    /**
+     * A symbol table that continues in the given scope, e.g. to check a single rule against the global
+     * variables. Its own global scope sits below the given one, which it never changes, so the given
+     * scope can be shared by symbol tables on other threads.
+     */
+    VariableManager(Scope enclosing) {
+        this(new HANLinkedList<>(), new HashMap<>(), new Scope(enclosing));
+    }
+
+    private VariableManager(IHANLinkedList<HashMap<String, Literal>> variableValues,
+                            HashMap<String, ExpressionType> latestTypes, Scope currentScope) {
+        this.variableValues = variableValues;
+        this.latestTypes = latestTypes;
+        this.currentScope = currentScope;
+    }
+
+    /**
+     * A symbol table for a pass that only reads the variables, e.g. evaluating a rule that assigns none.
+     * It resolves everything like this one does now and opens its scopes below the current one, but shares
+     * the values and types with this one: while it is in use, neither may declare or assign a variable.
+     * Forks that are only read from can be used on different threads at the same time.
+     */
+    public VariableManager fork() {
+        return new VariableManager(variableValues, latestTypes, new Scope(currentScope));
+    }
+
+    public void openScope() {
+        Scope scope = new Scope(currentScope);
+        currentScope.subScopes.add(scope);
+        currentScope = scope;
+    }
+
+    public void closeScope() {
+        currentScope = currentScope.parent;
+    }
+
+    /**
+     * @return whether a type was inferred for a reference to a variable that is not declared
+     */
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    public Scope getCurrentScope() {
+        return currentScope;
+    }
+
+    /**
+     * Forgets what only the statements evaluated so far needed: the scopes closed since, the inferred types
+     * and every value a later assignment replaced. Lookups resolve the same as before, so a pass that handles one
+     * statement at a time can call this in between to keep its memory use flat.
+     * The values are merged once more were assigned since the last merge than it kept, so calling this
+     * after every statement costs constant time per assignment on average.
+     */
+    public void compact() {
+        currentScope.subScopes.clear();
+        typeInference.clear();
+        if(variableValues.getSize() - 1 <= Math.max(mergedValues, MIN_VALUES_TO_MERGE)) return;
+
+        HashMap<String, Literal> latestValues = new HashMap<>();
+        for (HashMap<String, Literal> values : variableValues) {
+            values.forEach(latestValues::putIfAbsent);
         }
+
+        variableValues.clear();
+        variableValues.addFirst(latestValues);
+        mergedValues = latestValues.size();
     }
 
+    public void determineExpTypeOfVarAssignment(VariableAssignment assignment){
+        ExpressionType type = getExpressionType(assignment.expression);
+
+        currentScope.declare(assignment, type);
+        latestTypes.put(assignment.variableReference.name, type);
+
+        typeInference.clear();
+    }
+
+    /**
+     * Type of an expression with every variable reference resolved to the latest assignment made so far,
+     * whichever scope it was made in. This matches how getValueOfVarReference resolves values.
+     * The type of an expression is inferred once, together with the types of all operands below it.
+     * Asking again for the expression or any of its operands costs a lookup, until a variable is declared.
+     */
     public ExpressionType getExpressionType(Expression exp){
-        if(exp instanceof Operation){
-            ExpressionType lhs = getExpressionType(((Operation) exp).lhs);
-            ExpressionType rhs = getExpressionType(((Operation) exp).rhs);
+        return typeInference.typeOf(exp);
+    }
+
+    /**
+     * Type of the latest assignment to a variable, like a reference to it is typed
+     * @param name name of the variable
+     * @return the type, or null when the variable is not declared
+     */
+    public ExpressionType getVariableType(String name) {
+        ExpressionType type = latestTypes.get(name);
+
+        //A symbol table that continues in an enclosing scope has not seen the assignments made there
+        return type != null ? type : currentScope.resolveType(name);
+    }
+
+    /**
+     * Drops the types inferred for the expression and its operands, for when the expression is replaced in the AST
+     */
+    public void forgetExpressionTypes(Expression exp){
+        typeInference.forget(exp);
+    }
+
+    /**
+     * @return how many expressions have their type remembered
+     */
+    int getInferredTypeCount() {
+        return typeInference.types.size();
+    }
+
+    private final TypeInference typeInference = new TypeInference();
+
+    private class TypeInference extends ASTBaseVisitor<ExpressionType> {
+
+        //Inferred types by node, literals are shared between trees but always have the same type
+        private final Map<Expression, ExpressionType> types = new IdentityHashMap<>();
+
+        ExpressionType typeOf(Expression exp) {
+            if(exp == null) return ExpressionType.UNDEFINED;
+
+            ExpressionType type = types.get(exp);
+            if(type == null) {
+                infer(exp);
+                type = types.get(exp);
+            }
+            return type;
+        }
+
+        void clear() {
+            types.clear();
+        }
+
+        void forget(Expression exp) {
+            Deque<Expression> pending = new ArrayDeque<>();
+            pending.push(exp);
+
+            while(!pending.isEmpty()) {
+                Expression next = pending.pop();
+                if(types.remove(next) == null) continue;
+
+                if(next instanceof Operation) {
+                    Operation operation = (Operation) next;
+                    if(operation.rhs != null) pending.push(operation.rhs);
+                    if(operation.lhs != null) pending.push(operation.lhs);
+                }
+            }
+        }
+
+        //Operations take the type of their first operand that is not a scalar. Walked with an explicit stack,
+        //a long chain of operations would overflow the call stack. Operands typed before are not walked again.
+        private void infer(Expression exp) {
+            List<Operation> operations = new ArrayList<>();
+            Deque<Expression> pending = new ArrayDeque<>();
+            pending.push(exp);
+
+            while(!pending.isEmpty()) {
+                Expression next = pending.pop();
+                if(types.containsKey(next)) continue;
+
+                if(next instanceof Operation) {
+                    Operation operation = (Operation) next;
+                    operations.add(operation);
+                    if(operation.rhs != null) pending.push(operation.rhs);
+                    if(operation.lhs != null) pending.push(operation.lhs);
+                } else {
+                    types.put(next, next.accept(this));
+                }
+            }
 
-            if(lhs != ExpressionType.SCALAR) return lhs;
-            else if(rhs != ExpressionType.SCALAR) return rhs;
-            else return ExpressionType.SCALAR;
+            //Every operation is listed after the operation it is an operand of, backwards its operands are typed first
+            for(int i = operations.size() - 1; i >= 0; i--) {
+                Operation operation = operations.get(i);
+                ExpressionType lhs = operation.lhs != null ? types.get(operation.lhs) : ExpressionType.UNDEFINED;
+                ExpressionType rhs = operation.rhs != null ? types.get(operation.rhs) : ExpressionType.UNDEFINED;
 
-        } else if(exp instanceof VariableReference) {
-            return getExpressionTypeForVarAssignment((VariableReference) exp);
-        } else if(exp instanceof ScalarLiteral){
+                types.put(operation, lhs != ExpressionType.SCALAR ? lhs : rhs);
+            }
+        }
+
+        @Override
+        public ExpressionType visitNode(ASTNode node) {
+            return ExpressionType.UNDEFINED;
+        }
+
+        @Override
+        public ExpressionType visitVariableReference(VariableReference node) {
+            return getExpressionTypeForVarAssignment(node);
+        }
+
+        @Override
+        public ExpressionType visitScalarLiteral(ScalarLiteral node) {
             return ExpressionType.SCALAR;
-        } else if(exp instanceof PixelLiteral){
+        }
+
+        @Override
+        public ExpressionType visitPixelLiteral(PixelLiteral node) {
             return ExpressionType.PIXEL;
-        } else if(exp instanceof BoolLiteral){
+        }
+
+        @Override
+        public ExpressionType visitBoolLiteral(BoolLiteral node) {
             return ExpressionType.BOOL;
-        } else if(exp instanceof PercentageLiteral){
+        }
+
+        @Override
+        public ExpressionType visitPercentageLiteral(PercentageLiteral node) {
             return ExpressionType.PERCENTAGE;
-        } else if(exp instanceof ColorLiteral) {
-            return ExpressionType.COLOR;
         }
 
-        return ExpressionType.UNDEFINED;
+        @Override
+        public ExpressionType visitColorLiteral(ColorLiteral node) {
+            return ExpressionType.COLOR;
+        }
     }
 
     public void setVariableAssignmentValues(VariableAssignment varAssignment){
@@ -61,25 +257,50 @@ public class VariableManager {
     }
 
     public Literal getValueOfVarReference(VariableReference varReference){
-        for (int i = 0; i < variableValues.getSize(); i++) {
-            if(variableValues.get(i).containsKey(varReference.name)){
-                return variableValues.get(i).get(varReference.name);
+        return getValue(varReference.name);
+    }
+
+    /**
+     * Captures everything the evaluation of a reference to the variable depends on at this point
+     */
+    public VariableState getState(String name) {
+        return new VariableState(getValue(name), latestTypes.get(name));
+    }
+
+    /**
+     * Makes the variable resolve to the value and latest type of the state, as if the assignment that
+     * produced it was just evaluated again.
+     */
+    public void restoreState(String name, VariableState state) {
+        if(state.value != null) {
+            HashMap<String, Literal> mapping = new HashMap<>();
+            mapping.put(name, state.value);
+            variableValues.addFirst(mapping);
+        }
+
+        if(state.type != null) latestTypes.put(name, state.type);
+        else latestTypes.remove(name);
+        typeInference.clear();
+    }
+
+    private Literal getValue(String name){
+        for (HashMap<String, Literal> values : variableValues) {
+            if(values.containsKey(name)){
+                return values.get(name);
             }
         }
 
         return null;
     }
 
+    //A reference outside the scope of its variable is a scope error of its own, its type is still that of the latest assignment
     private ExpressionType getExpressionTypeForVarAssignment(VariableReference reference) {
-        for (int i = 0; i < variableTypes.getSize(); i++) {
-            HashMap<String, ExpressionType> varType = variableTypes.get(i);
+        ExpressionType type = getVariableType(reference.name);
 
-            if (varType.containsKey(reference.name)){
-                return varType.get(reference.name);
-            }
-        }
+        if (type != null) return type;
 
         reference.setError("Variable is not declared.");
+        errorCount++;
 
         return ExpressionType.UNDEFINED;
     }
@@ -0,0 +1,34 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.util.Objects;
+
+/**
+ * What a variable resolves to at one point of the evaluation: its latest value and type.
+ * Either can be null when it is not known there.
+ */
+public final class VariableState {
+
+    public final Literal value;
+    public final ExpressionType type;
+
+    public VariableState(Literal value, ExpressionType type) {
+        this.value = value;
+        this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VariableState that = (VariableState) o;
+        return Objects.equals(value, that.value) && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, type);
+    }
+}
@@ -0,0 +1,307 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.StreamingCompiler;
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles every .icss file below a set of roots. Each file gets its own Pipeline and
+ * runs as a separate task on a work-stealing pool, the generated CSS is written next to the input.
+ * The CSS goes to a temporary file first, the output is either complete or missing: a file that does
+ * not compile leaves no CSS behind, not even that of an earlier compilation.
+ */
+public class BatchCompiler {
+
+    public static final String ICSS_EXTENSION = ".icss";
+    public static final String CSS_EXTENSION = ".css";
+
+    //Reported for a file the recursive parser or a pass cannot handle, e.g. thousands of nested if-clauses
+    public static final String TOO_DEEP_ERROR = "Stylesheet is nested too deeply to compile";
+
+    private final int parallelism;
+    private final FileCompiler compiler;
+    private final PrintStream out;
+
+    public BatchCompiler(int parallelism, PrintStream out) {
+        this(parallelism, false, null, out);
+    }
+
+    /**
+     * @param fused check and transform every file in a single traversal, see Pipeline.checkAndTransform
+     * @param cache results of earlier compilations, or null to compile every file
+     */
+    public BatchCompiler(int parallelism, boolean fused, CompilationCache cache, PrintStream out) {
+        this(parallelism, fused, false, cache, out);
+    }
+
+    /**
+     * @param streaming compile every file while reading it, see StreamingCompiler. Takes precedence over fused and cache,
+     *                  streaming is always a single traversal and the cache needs the whole text up front
+     */
+    public BatchCompiler(int parallelism, boolean fused, boolean streaming, CompilationCache cache, PrintStream out) {
+        this(parallelism, compilerFor(fused, streaming, cache), out);
+    }
+
+    /**
+     * @param compiler compiles a single file and writes its CSS, called from several threads at once
+     */
+    public BatchCompiler(int parallelism, FileCompiler compiler, PrintStream out) {
+        this.parallelism = parallelism;
+        this.compiler = compiler;
+        this.out = out;
+    }
+
+    /**
+     * Compiles all .icss files found below the given roots and reports the result
+     * @param roots files or directories to compile
+     * @return true when every file compiled without errors
+     */
+    public boolean compileAll(List<Path> roots) throws IOException {
+        List<Path> sources = collectSources(roots);
+
+        long start = System.nanoTime();
+        List<FileResult> results = compileInParallel(sources);
+        long elapsed = System.nanoTime() - start;
+
+        int failed = 0;
+        for (FileResult result : results) {
+            if (result.succeeded()) continue;
+
+            failed++;
+            out.println(result.source + ":");
+            for (String error : result.errors) out.println("  " + error);
+        }
+
+        report(results.size(), failed, elapsed);
+        return failed == 0;
+    }
+
+    /**
+     * Runs a fresh Pipeline over a single file and writes the generated CSS next to it
+     * @param source the .icss file
+     * @param fused use Pipeline.checkAndTransform instead of separate check and transform stages
+     * @return the errors found while compiling, or an empty result when the CSS was written
+     */
+    public static FileResult compile(Path source, boolean fused) {
+        Pipeline pipeline = new Pipeline();
+
+        try {
+            pipeline.parseString(Files.readString(source, StandardCharsets.UTF_8));
+
+            writeOutput(source, css -> {
+                if (pipeline.isParsed() && checkAndTransform(pipeline, fused)) pipeline.generate(css);
+                return pipeline.getErrors();
+            });
+        } catch (IOException | RuntimeException e) {
+            List<String> errors = new ArrayList<>(pipeline.getErrors());
+            errors.add(e.toString());
+            return new FileResult(source, errors);
+        }
+
+        return new FileResult(source, pipeline.getErrors());
+    }
+
+    public static FileResult compile(Path source) {
+        return compile(source, false);
+    }
+
+    /**
+     * Like compile(source, fused), but takes the errors and CSS from the cache when the same text was compiled before
+     * @param cache where the results are looked up and stored
+     */
+    public static FileResult compile(Path source, boolean fused, CompilationCache cache) {
+        try {
+            CompilationCache.Result result = cache.compile(Files.readString(source, StandardCharsets.UTF_8),
+                    text -> compileText(text, fused));
+
+            return new FileResult(source, writeOutput(source, result));
+        } catch (IOException | RuntimeException e) {
+            return new FileResult(source, List.of(e.toString()));
+        }
+    }
+
+    /**
+     * Compiles a single file with the StreamingCompiler, so neither the text nor the AST of the whole file is
+     * ever held in memory.
+     * @param source the .icss file
+     * @return the errors found while compiling, or an empty result when the CSS was written
+     */
+    public static FileResult compileStreaming(Path source) {
+        try {
+            return new FileResult(source, writeOutput(source, css -> {
+                try (Reader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                    return new StreamingCompiler().compile(reader, css);
+                }
+            }));
+        } catch (IOException | RuntimeException e) {
+            return new FileResult(source, List.of(e.toString()));
+        }
+    }
+
+    /**
+     * Writes the CSS of a compiled file next to it
+     * @param result the errors and, when there were none, the CSS
+     * @return the errors of the result
+     */
+    public static List<String> writeOutput(Path source, CompilationCache.Result result) throws IOException {
+        return writeOutput(source, css -> {
+            if (result.succeeded()) css.write(result.css);
+            return result.errors;
+        });
+    }
+
+    /**
+     * Writes the CSS of a file to a temporary file that replaces the output once it is complete. When there are
+     * errors or writing fails, the output is deleted instead, so no stale or truncated CSS is left behind.
+     * @param generator writes the CSS and returns the errors
+     * @return the errors the generator returned
+     */
+    public static List<String> writeOutput(Path source, OutputGenerator generator) throws IOException {
+        Path output = outputPathFor(source);
+        Path temporary = Files.createTempFile(output.toAbsolutePath().getParent(), output.getFileName().toString(), ".tmp");
+        boolean written = false;
+
+        try {
+            List<String> errors;
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                errors = generator.generate(writer);
+            }
+
+            if (errors.isEmpty()) {
+                Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+                written = true;
+            }
+            return errors;
+        } finally {
+            try {
+                Files.deleteIfExists(temporary);
+                if (!written) Files.deleteIfExists(output);
+            } catch (IOException e) {
+                //Only a stray temporary file or an old output is left behind
+            }
+        }
+    }
+
+    /**
+     * Compiles an ICSS text with a fresh Pipeline
+     * @return the errors and, when there were none, the generated CSS
+     */
+    public static CompilationCache.Result compileText(String text, boolean fused) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(text);
+
+        if (pipeline.isParsed() && checkAndTransform(pipeline, fused)) {
+            return new CompilationCache.Result(pipeline.getErrors(), pipeline.generate());
+        }
+        return new CompilationCache.Result(pipeline.getErrors(), null);
+    }
+
+    private static boolean checkAndTransform(Pipeline pipeline, boolean fused) {
+        if (fused) return pipeline.checkAndTransform();
+
+        if (!pipeline.check()) return false;
+        pipeline.transform();
+        return true;
+    }
+
+    public static Path outputPathFor(Path source) {
+        String name = source.getFileName().toString();
+        String base = name.substring(0, name.length() - ICSS_EXTENSION.length());
+        return source.resolveSibling(base + CSS_EXTENSION);
+    }
+
+    private List<FileResult> compileInParallel(List<Path> sources) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            List<ForkJoinTask<FileResult>> tasks = new ArrayList<>(sources.size());
+            for (Path source : sources) tasks.add(pool.submit(() -> compileOne(source)));
+
+            //Join in submission order so the report does not depend on scheduling
+            List<FileResult> results = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<FileResult> task : tasks) results.add(task.join());
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //A single file that overflows the stack fails on its own instead of aborting the whole batch
+    private FileResult compileOne(Path source) {
+        try {
+            return compiler.compile(source);
+        } catch (StackOverflowError e) {
+            return new FileResult(source, List.of(TOO_DEEP_ERROR));
+        }
+    }
+
+    private static FileCompiler compilerFor(boolean fused, boolean streaming, CompilationCache cache) {
+        if (streaming) return BatchCompiler::compileStreaming;
+        if (cache != null) return source -> compile(source, fused, cache);
+        return source -> compile(source, fused);
+    }
+
+    private List<Path> collectSources(List<Path> roots) throws IOException {
+        List<Path> sources = new ArrayList<>();
+
+        for (Path root : roots) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                sources.addAll(walk
+                        .filter(Files::isRegularFile)
+                        .filter(path -> path.getFileName().toString().endsWith(ICSS_EXTENSION))
+                        .sorted()
+                        .collect(Collectors.toList()));
+            }
+        }
+
+        return sources;
+    }
+
+    private void report(int total, int failed, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        double filesPerSecond = seconds > 0 ? total / seconds : 0;
+
+        out.printf("Compiled %d files (%d failed) in %.3f s, %.1f files/sec on %d threads%n",
+                total, failed, seconds, filesPerSecond, parallelism);
+    }
+
+    public interface FileCompiler {
+        FileResult compile(Path source);
+    }
+
+    public interface OutputGenerator {
+        //The errors, the CSS is only kept when there are none
+        List<String> generate(Writer css) throws IOException;
+    }
+
+    public static class FileResult {
+
+        public final Path source;
+        public final List<String> errors;
+
+        public FileResult(Path source, List<String> errors) {
+            this.source = source;
+            this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+
+        public boolean succeeded() {
+            return errors.isEmpty();
+        }
+    }
+}
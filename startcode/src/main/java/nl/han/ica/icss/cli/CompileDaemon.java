@@ -0,0 +1,208 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompilationCache;
+import nl.han.ica.icss.parser.ParserFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a warmed-up compiler resident and compiles ICSS texts sent over localhost TCP, so a build does not
+ * pay for starting a JVM and warming up the parser on every compile. Every connection is served by its own
+ * thread and can carry any number of requests, see DaemonProtocol for the format and DaemonClient for a client.
+ * Only clients of the same user can connect: the daemon writes a random token to a file only that user can
+ * read, and closes every connection that does not start with it. The file is deleted when the daemon stops.
+ *
+ * Usage: CompileDaemon [--port N] [--cache DIR]
+ */
+public class CompileDaemon implements Closeable {
+
+    public static final int DEFAULT_PORT = 7345;
+    public static final String PORT_OPTION = "--port";
+    public static final String CACHE_OPTION = "--cache";
+
+    private final ServerSocket serverSocket;
+    private final byte[] token = DaemonProtocol.newToken();
+    private final Path tokenFile;
+    private final CompilationCache cache;
+    private final ExecutorService connections;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private Thread acceptor = null;
+
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong connectionCount = new AtomicLong();
+
+    /**
+     * @param port port to listen on at the loopback address, 0 picks a free one
+     * @param cache results of earlier compilations, or null to compile every request
+     */
+    public CompileDaemon(int port, CompilationCache cache) throws IOException {
+        this(port, cache, DaemonProtocol.defaultTokenDirectory());
+    }
+
+    /**
+     * @param tokenDirectory where the token file is written, clients have to read it from the same directory
+     */
+    public CompileDaemon(int port, CompilationCache cache, Path tokenDirectory) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.cache = cache;
+
+        this.tokenFile = DaemonProtocol.tokenFile(tokenDirectory, getPort());
+        try {
+            DaemonProtocol.writeToken(tokenFile, token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "icss-daemon-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Warms up the parser and starts accepting connections in the background
+     */
+    public void start() {
+        ParserFactory.warmUp();
+
+        acceptor = new Thread(this::acceptConnections, "icss-daemon-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Blocks until the daemon is closed, by close() or by a client's shutdown request, and its port is free again
+     */
+    public void awaitShutdown() throws InterruptedException {
+        stopped.await();
+
+        //A thread blocked in accept keeps the listening socket open until it returns from it
+        if (acceptor != null) acceptor.join();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones, requests in progress are not answered
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            serverSocket.close();
+            for (Socket socket : openSockets) socket.close();
+        } finally {
+            connections.shutdown();
+            Files.deleteIfExists(tokenFile);
+            stopped.countDown();
+        }
+    }
+
+    public String getStatus() {
+        return "port: " + getPort() + ", connections: " + connectionCount.get() + ", compilations: " + compilations.get()
+                + ", " + ParserFactory.getMetrics();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                openSockets.add(socket);
+                connectionCount.incrementAndGet();
+                connections.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                //Closed while waiting for a connection
+            } catch (IOException e) {
+                System.err.println("Could not accept a connection: " + e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+            DaemonProtocol.readHandshake(in, token);
+
+            int request;
+            while ((request = in.read()) != -1) {
+                switch (request) {
+                    case DaemonProtocol.COMPILE:
+                        boolean fused = in.readBoolean();
+                        DaemonProtocol.writeResult(out, compile(DaemonProtocol.readString(in), fused));
+                        break;
+                    case DaemonProtocol.STATUS:
+                        DaemonProtocol.writeString(out, getStatus());
+                        break;
+                    case DaemonProtocol.SHUTDOWN:
+                        close();
+                        return;
+                    default:
+                        throw new StreamCorruptedException("Unknown request " + request);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            //The client went away or does not speak the protocol, only this connection is affected
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    private CompilationCache.Result compile(String source, boolean fused) throws IOException {
+        compilations.incrementAndGet();
+
+        try {
+            if (cache != null) return cache.compile(source, text -> BatchCompiler.compileText(text, fused));
+            return BatchCompiler.compileText(source, fused);
+        } catch (RuntimeException e) {
+            return new CompilationCache.Result(List.of(e.toString()), null);
+        } catch (StackOverflowError e) {
+            //Only this request fails, the connection stays usable
+            return new CompilationCache.Result(List.of(BatchCompiler.TOO_DEEP_ERROR), null);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = DEFAULT_PORT;
+        CompilationCache cache = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(PORT_OPTION) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals(CACHE_OPTION) && i + 1 < args.length) {
+                cache = new CompilationCache(Paths.get(args[++i]));
+            } else {
+                System.err.println("Usage: CompileDaemon [" + PORT_OPTION + " N] [" + CACHE_OPTION + " DIR]");
+                System.exit(2);
+            }
+        }
+
+        CompileDaemon daemon = new CompileDaemon(port, cache);
+        daemon.start();
+        System.out.println("Compile daemon listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + daemon.getPort()
+                + ", token in " + daemon.tokenFile);
+        daemon.awaitShutdown();
+    }
+}
@@ -0,0 +1,217 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Connection to a CompileDaemon on this machine. A client sends one request at a time, use a client per
+ * thread to compile in parallel. It presents the token from the daemon's token file, so only the user
+ * running the daemon can connect.
+ *
+ * As a command it compiles files like Main does, but leaves the compiling to a running daemon.
+ *
+ * Usage: DaemonClient [--port N] [--threads N] [--fused] [--status | --stop] <file or directory>...
+ * N is the number of threads to compile with, at least 1.
+ */
+public class DaemonClient implements Closeable {
+
+    public static final String PORT_OPTION = "--port";
+    public static final String THREADS_OPTION = "--threads";
+    public static final String FUSED_OPTION = "--fused";
+    public static final String STATUS_OPTION = "--status";
+    public static final String STOP_OPTION = "--stop";
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    public DaemonClient(int port) throws IOException {
+        this(port, DaemonProtocol.defaultTokenDirectory());
+    }
+
+    /**
+     * @param tokenDirectory the directory the daemon wrote its token file to
+     */
+    public DaemonClient(int port, Path tokenDirectory) throws IOException {
+        byte[] token = DaemonProtocol.readToken(DaemonProtocol.tokenFile(tokenDirectory, port));
+
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        DaemonProtocol.writeHandshake(out, token);
+    }
+
+    /**
+     * @param fused check and transform in a single traversal, see Pipeline.checkAndTransform
+     * @return the errors and, when there were none, the generated CSS
+     */
+    public CompilationCache.Result compile(String source, boolean fused) throws IOException {
+        out.writeByte(DaemonProtocol.COMPILE);
+        out.writeBoolean(fused);
+        DaemonProtocol.writeString(out, source);
+        out.flush();
+
+        return DaemonProtocol.readResult(in);
+    }
+
+    public String status() throws IOException {
+        out.writeByte(DaemonProtocol.STATUS);
+        out.flush();
+
+        return DaemonProtocol.readString(in);
+    }
+
+    /**
+     * Stops the daemon, this client cannot be used afterwards
+     */
+    public void shutdown() throws IOException {
+        out.writeByte(DaemonProtocol.SHUTDOWN);
+        out.flush();
+
+        //The daemon closes the connection once it has stopped
+        while (in.read() != -1) ;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = CompileDaemon.DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean fused = false;
+        boolean status = false;
+        boolean stop = false;
+        List<Path> roots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(PORT_OPTION) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals(THREADS_OPTION) && i + 1 < args.length) {
+                threads = Main.parseThreads(args[++i]);
+                if (threads < 1) exitWithUsage();
+            } else if (args[i].equals(FUSED_OPTION)) {
+                fused = true;
+            } else if (args[i].equals(STATUS_OPTION)) {
+                status = true;
+            } else if (args[i].equals(STOP_OPTION)) {
+                stop = true;
+            } else {
+                roots.add(Paths.get(args[i]));
+            }
+        }
+
+        if (status || stop) {
+            try (DaemonClient client = new DaemonClient(port)) {
+                if (status) System.out.println(client.status());
+                if (stop) client.shutdown();
+            }
+            System.exit(0);
+        }
+
+        if (roots.isEmpty()) exitWithUsage();
+
+        boolean succeeded;
+        try (Connections connections = new Connections(port, fused)) {
+            succeeded = new BatchCompiler(threads, connections, System.out).compileAll(roots);
+        }
+        System.exit(succeeded ? 0 : 1);
+    }
+
+    private static void exitWithUsage() {
+        System.err.println("Usage: DaemonClient [" + PORT_OPTION + " N] [" + THREADS_OPTION + " N] [" + FUSED_OPTION + "] ["
+                + STATUS_OPTION + " | " + STOP_OPTION + "] <file or directory>...");
+        System.exit(2);
+    }
+
+    /**
+     * Compiles files on the daemon for a BatchCompiler. Every thread keeps its own connection open,
+     * so a file costs a request but no connect and handshake.
+     */
+    public static class Connections implements BatchCompiler.FileCompiler, Closeable {
+
+        private final int port;
+        private final Path tokenDirectory;
+        private final boolean fused;
+        private final ThreadLocal<DaemonClient> clients = new ThreadLocal<>();
+        //Every connection opened so far, the threads that own them may be gone by the time they are closed
+        private final Queue<DaemonClient> opened = new ConcurrentLinkedQueue<>();
+
+        /**
+         * @param fused check and transform in a single traversal, see Pipeline.checkAndTransform
+         */
+        public Connections(int port, boolean fused) {
+            this(port, DaemonProtocol.defaultTokenDirectory(), fused);
+        }
+
+        /**
+         * @param tokenDirectory the directory the daemon wrote its token file to
+         * @param fused check and transform in a single traversal, see Pipeline.checkAndTransform
+         */
+        public Connections(int port, Path tokenDirectory, boolean fused) {
+            this.port = port;
+            this.tokenDirectory = tokenDirectory;
+            this.fused = fused;
+        }
+
+        /**
+         * Compiles a single file on the daemon and writes the generated CSS next to it
+         * @return the errors found while compiling, or an empty result when the CSS was written
+         */
+        @Override
+        public BatchCompiler.FileResult compile(Path source) {
+            try {
+                String text = Files.readString(source, StandardCharsets.UTF_8);
+                return new BatchCompiler.FileResult(source, BatchCompiler.writeOutput(source, compile(text)));
+            } catch (IOException | RuntimeException e) {
+                return new BatchCompiler.FileResult(source, List.of(e.toString()));
+            }
+        }
+
+        //A broken connection is dropped, the next file on this thread connects again
+        private CompilationCache.Result compile(String text) throws IOException {
+            DaemonClient client = clients.get();
+            if (client == null) {
+                client = new DaemonClient(port, tokenDirectory);
+                opened.add(client);
+                clients.set(client);
+            }
+
+            try {
+                return client.compile(text, fused);
+            } catch (IOException | RuntimeException e) {
+                clients.remove();
+                opened.remove(client);
+                client.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return how many connections are open
+         */
+        public int getOpenConnections() {
+            return opened.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            DaemonClient client;
+            while ((client = opened.poll()) != null) client.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format between the CompileDaemon and its clients. A connection starts with the client sending
+ * MAGIC, VERSION and the TOKEN_BYTES of the token the daemon wrote to its token file. The file can only be
+ * read by the user running the daemon, a connection without the token is closed before any request is read.
+ * After the handshake a connection carries any number of requests, each answered before the next is read:
+ *
+ * COMPILE, fused flag, source text  ->  error count, errors, CSS flag, CSS text
+ * STATUS                            ->  status text
+ * SHUTDOWN                          ->  nothing, the daemon stops accepting connections
+ *
+ * Texts are an int byte count followed by that many bytes of UTF-8, at most MAX_STRING_BYTES of them.
+ */
+final class DaemonProtocol {
+
+    static final int MAGIC = 0x49435353;
+    static final int VERSION = 2;
+    static final int TOKEN_BYTES = 32;
+
+    static final byte COMPILE = 1;
+    static final byte STATUS = 2;
+    static final byte SHUTDOWN = 3;
+
+    //The length comes from the other side of the connection, a bound keeps it from making the reader allocate gigabytes
+    static final int MAX_STRING_BYTES = 64 * 1024 * 1024;
+
+    private DaemonProtocol() {
+    }
+
+    static void writeHandshake(DataOutputStream out, byte[] token) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.write(token);
+    }
+
+    static void readHandshake(DataInputStream in, byte[] token) throws IOException {
+        if (in.readInt() != MAGIC) throw new StreamCorruptedException("Not an ICSS compile client");
+
+        int version = in.readInt();
+        if (version != VERSION) throw new StreamCorruptedException("Unsupported protocol version " + version);
+
+        byte[] presented = new byte[TOKEN_BYTES];
+        in.readFully(presented);
+        //Compared in constant time, so the time to reject does not tell how much of a guess was right
+        if (!MessageDigest.isEqual(token, presented)) throw new StreamCorruptedException("Wrong daemon token");
+    }
+
+    static byte[] newToken() {
+        byte[] token = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(token);
+        return token;
+    }
+
+    /**
+     * @return where the daemon listening on the port keeps its token, in a directory only its user can read
+     */
+    static Path tokenFile(Path directory, int port) {
+        return directory.resolve("daemon-" + port + ".token");
+    }
+
+    static Path defaultTokenDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".icss");
+    }
+
+    /**
+     * Writes the token so only the current user can read it. The file is created with owner-only permissions
+     * and moved into place once complete, it is never readable by others, not even while it is written.
+     */
+    static void writeToken(Path file, byte[] token) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+
+        //A temporary file is only readable by its owner
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temporary, toHex(token), StandardCharsets.US_ASCII);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static byte[] readToken(Path file) throws IOException {
+        String hex = Files.readString(file, StandardCharsets.US_ASCII).trim();
+        if (hex.length() != TOKEN_BYTES * 2) throw new StreamCorruptedException("Malformed daemon token in " + file);
+
+        byte[] token = new byte[TOKEN_BYTES];
+        for (int i = 0; i < token.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) throw new StreamCorruptedException("Malformed daemon token in " + file);
+            token[i] = (byte) (high << 4 | low);
+        }
+        return token;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return hex.toString();
+    }
+
+    static void writeResult(DataOutputStream out, CompilationCache.Result result) throws IOException {
+        out.writeInt(result.errors.size());
+        for (String error : result.errors) writeString(out, error);
+
+        out.writeBoolean(result.css != null);
+        if (result.css != null) writeString(out, result.css);
+    }
+
+    static CompilationCache.Result readResult(DataInputStream in) throws IOException {
+        int errorCount = in.readInt();
+        if (errorCount < 0) throw new StreamCorruptedException("Negative error count " + errorCount);
+
+        //Not presized, a corrupt count runs into the end of the stream instead of allocating the list up front
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < errorCount; i++) errors.add(readString(in));
+
+        String css = in.readBoolean() ? readString(in) : null;
+        return new CompilationCache.Result(errors, css);
+    }
+
+    //writeUTF is limited to 64 KB, sources and CSS easily exceed that
+    static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) throw new StreamCorruptedException("Negative string length " + length);
+        if (length > MAX_STRING_BYTES) throw new StreamCorruptedException("String length " + length + " exceeds " + MAX_STRING_BYTES);
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
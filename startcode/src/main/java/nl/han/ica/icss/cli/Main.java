@@ -0,0 +1,65 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompilationCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless entry point: compiles whole directory trees of .icss files without starting the GUI.
+ *
+ * Usage: Main [--threads N] [--fused] [--stream] [--cache DIR] <file or directory>...
+ * N is the number of threads to compile with, at least 1.
+ */
+public class Main {
+
+    public static final String THREADS_OPTION = "--threads";
+    public static final String FUSED_OPTION = "--fused";
+    public static final String STREAM_OPTION = "--stream";
+    public static final String CACHE_OPTION = "--cache";
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean fused = false;
+        boolean streaming = false;
+        CompilationCache cache = null;
+        List<Path> roots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(THREADS_OPTION) && i + 1 < args.length) {
+                threads = parseThreads(args[++i]);
+                if (threads < 1) exitWithUsage();
+            } else if (args[i].equals(FUSED_OPTION)) {
+                fused = true;
+            } else if (args[i].equals(STREAM_OPTION)) {
+                streaming = true;
+            } else if (args[i].equals(CACHE_OPTION) && i + 1 < args.length) {
+                cache = new CompilationCache(Paths.get(args[++i]));
+            } else {
+                roots.add(Paths.get(args[i]));
+            }
+        }
+
+        if (roots.isEmpty()) exitWithUsage();
+
+        boolean succeeded = new BatchCompiler(threads, fused, streaming, cache, System.out).compileAll(roots);
+        System.exit(succeeded ? 0 : 1);
+    }
+
+    //The number of threads, 0 when the value is not a number
+    static int parseThreads(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void exitWithUsage() {
+        System.err.println("Usage: Main [" + THREADS_OPTION + " N] [" + FUSED_OPTION + "] [" + STREAM_OPTION + "] [" + CACHE_OPTION + " DIR] <file or directory>...");
+        System.exit(2);
+    }
+}
@@ -1,12 +1,15 @@
 package nl.han.ica.icss.generator;
 
-import nl.han.ica.datastructures.HANStack;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
 import nl.han.ica.icss.ast.selectors.ClassSelector;
 import nl.han.ica.icss.ast.selectors.IdSelector;
 import nl.han.ica.icss.ast.selectors.TagSelector;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
 public class Generator {
 
 	public static final String ASSIGNMENT_OPERATOR = ":=";
@@ -25,51 +28,147 @@ public class Generator {
 
 
 
-	private final HANStack<ASTNode> container = new HANStack<>();
-
 	public String generate(AST ast) {
-        return walkASTRecursive(ast.root, "");
+		StringBuilder builder = new StringBuilder();
+		new CssWriter(builder).walk(ast.root);
+		return builder.toString();
 	}
 
-	private String walkASTRecursive(ASTNode node, String str){
-
-		String newString = str;
+	/**
+	 * @return the CSS of a single (transformed) node, e.g. one stylerule of a stylesheet
+	 */
+	public String generate(ASTNode node) {
+		StringBuilder builder = new StringBuilder();
+		new CssWriter(builder).walk(node);
+		return builder.toString();
+	}
 
-		if(node instanceof Literal && !(container.peek() instanceof VariableAssignment)){
-			newString += getLiteralAsString((Literal) node) + SEMICOLON + EOL;
+	/**
+	 * Streams the generated CSS straight into the writer, without building it in memory first
+	 * @param ast the (transformed) AST to generate
+	 * @param writer destination of the CSS
+	 */
+	public void generate(AST ast, Writer writer) throws IOException {
+		try {
+			new CssWriter(writer).walk(ast.root);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
 		}
+	}
+
+	/*
+	 Writes the CSS for every node it walks. Nodes without any CSS of their own
+	 (the stylesheet, if/else clauses, variable references) just have their children walked.
+	 */
+	private static class CssWriter extends ASTWalker {
 
-		if(node instanceof Declaration) newString += SPACE + SPACE + ((Declaration) node).property.name + COLON + SPACE;
-		if(node instanceof ClassSelector) newString += CLASS_TAG + ((ClassSelector) node).cls + SPACE + OPEN_BRACE + EOL;
-		if(node instanceof IdSelector)  newString += ID_TAG + ((IdSelector) node).id + SPACE + OPEN_BRACE + EOL;
-		if(node instanceof TagSelector) newString += ((TagSelector) node).tag + SPACE + OPEN_BRACE + EOL;
+		private final Appendable out;
+		private final CssVisitor visitor = new CssVisitor();
 
-		container.push(node);
+		//The value of a variable assignment is not part of the CSS
+		private Expression assignedValue;
 
-		for (ASTNode child: node.getChildren()) newString = walkASTRecursive(child, newString);
+		CssWriter(Appendable out) {
+			this.out = out;
+		}
 
-		container.pop();
+		@Override
+		protected boolean enter(ASTNode node) {
+			return node.accept(visitor);
+		}
 
-		if(node instanceof Stylerule) newString += CLOSE_BRACE + EOL + EOL;
+		@Override
+		protected void exit(ASTNode node) {
+			if (node instanceof Stylerule) append(CLOSE_BRACE).append(EOL).append(EOL);
+			//Literals are shared, a declaration further on can hold the same one
+			else if (node instanceof VariableAssignment) assignedValue = null;
+		}
 
-		return newString;
-	}
+		private CssWriter append(CharSequence text) {
+			try {
+				out.append(text);
+				return this;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 
-	private String getLiteralAsString(Literal literal) {
-		if(literal instanceof ScalarLiteral){
-			return String.valueOf(((ScalarLiteral) literal).value);
-		} else if(literal instanceof PixelLiteral){
-			return ((PixelLiteral) literal).value + PIXEL_POSTFIX;
-		} else if(literal instanceof PercentageLiteral){
-			return ((PercentageLiteral) literal).value + PERCENTAGE_SYMBOL;
-		} else if(literal instanceof BoolLiteral){
-			final boolean value = ((BoolLiteral) literal).value;
-			if(value) return TRUE;
-			else return FALSE;
-		} else if(literal instanceof ColorLiteral){
-			return ((ColorLiteral) literal).value;
+		private CssWriter append(char c) {
+			try {
+				out.append(c);
+				return this;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
 
-		return null;
+		//Writes what comes before the children of a node, the result tells whether to walk them
+		private class CssVisitor extends ASTBaseVisitor<Boolean> {
+
+			@Override
+			public Boolean visitNode(ASTNode node) {
+				return true;
+			}
+
+			@Override
+			public Boolean visitDeclaration(Declaration node) {
+				append(SPACE).append(SPACE).append(node.property.name).append(COLON).append(SPACE);
+				return true;
+			}
+
+			@Override
+			public Boolean visitVariableAssignment(VariableAssignment node) {
+				assignedValue = node.expression;
+				return true;
+			}
+
+			@Override
+			public Boolean visitClassSelector(ClassSelector node) {
+				append(CLASS_TAG).append(node.cls).append(SPACE).append(OPEN_BRACE).append(EOL);
+				return false;
+			}
+
+			@Override
+			public Boolean visitIdSelector(IdSelector node) {
+				append(ID_TAG).append(node.id).append(SPACE).append(OPEN_BRACE).append(EOL);
+				return false;
+			}
+
+			@Override
+			public Boolean visitTagSelector(TagSelector node) {
+				append(node.tag).append(SPACE).append(OPEN_BRACE).append(EOL);
+				return false;
+			}
+
+			@Override
+			public Boolean visitScalarLiteral(ScalarLiteral node) {
+				return appendValue(node, Integer.toString(node.value), "");
+			}
+
+			@Override
+			public Boolean visitPixelLiteral(PixelLiteral node) {
+				return appendValue(node, Integer.toString(node.value), PIXEL_POSTFIX);
+			}
+
+			@Override
+			public Boolean visitPercentageLiteral(PercentageLiteral node) {
+				return appendValue(node, Integer.toString(node.value), PERCENTAGE_SYMBOL);
+			}
+
+			@Override
+			public Boolean visitBoolLiteral(BoolLiteral node) {
+				return appendValue(node, node.value ? TRUE : FALSE, "");
+			}
+
+			@Override
+			public Boolean visitColorLiteral(ColorLiteral node) {
+				return appendValue(node, node.value, "");
+			}
+
+			private Boolean appendValue(Literal literal, String value, String unit) {
+				if (literal != assignedValue) append(value).append(unit).append(SEMICOLON).append(EOL);
+				return false;
+			}
+		}
 	}
 }
@@ -8,6 +8,10 @@ import javafx.scene.control.TreeView;
 import javafx.scene.layout.BorderPane;
 import nl.han.ica.icss.ast.AST;
 import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.parser.IncrementalParser;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class ASTPane extends BorderPane {
 
@@ -52,13 +56,37 @@ public class ASTPane extends BorderPane {
         content.setRoot(astNodeToTreeItem(ast.root));
     }
 
+    /**
+     * Replaces only the tree items of the top-level statements an incremental parse replaced
+     * @param ast the updated AST
+     * @param splice the statements that were replaced, null when the whole AST is new
+     */
+    public void update(AST ast, IncrementalParser.Splice splice) {
+        TreeItem<ASTNode> root = content.getRoot();
+        if(splice == null || root == null || root.getValue() != ast.root) {
+            update(ast);
+            return;
+        }
+
+        List<TreeItem<ASTNode>> added = new ArrayList<>(splice.added);
+        for(int i = splice.index; i < splice.index + splice.added; i++) {
+            added.add(astNodeToTreeItem(ast.root.getChild(i)));
+        }
+
+        root.getChildren().remove(splice.index, splice.index + splice.removed);
+        root.getChildren().addAll(splice.index, added);
+
+        //The kept statements lost the error markers of the last check
+        content.refresh();
+    }
+
     private TreeItem<ASTNode> astNodeToTreeItem(ASTNode astNode) {
 
         TreeItem<ASTNode> tvNode = new TreeItem<ASTNode>(astNode);
         tvNode.setExpanded(true);
 
-        for(ASTNode child : astNode.getChildren()) {
-            tvNode.getChildren().add(astNodeToTreeItem(child));
+        for(int i = 0; i < astNode.getChildCount(); i++) {
+            tvNode.getChildren().add(astNodeToTreeItem(astNode.getChild(i)));
         }
         return tvNode;
     }
@@ -7,14 +7,22 @@ import java.nio.file.Files;
 import java.util.stream.Collectors;
 
 import javafx.geometry.Insets;
+import javafx.scene.control.TextFormatter;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.Label;
+import nl.han.ica.icss.parser.TextChange;
 
 @SuppressWarnings("restriction")
 public class InputPane extends BorderPane {
 	private TextArea content;
 	private Label title;
+
+	//Edits since the last call to takeChange, null when nothing changed
+	private TextChange change;
+	//Set when the text changed without the formatter seeing the edit, e.g. by setText
+	private boolean untracked = true;
+	private TextFormatter.Change pendingEdit;
 	
 	public InputPane() {
 		super();
@@ -22,6 +30,22 @@ public class InputPane extends BorderPane {
 		title = new Label("Input (ICSS):");
 		content = new TextArea();
 		title.setPadding(new Insets(5, 5, 5, 5));
+
+		content.setTextFormatter(new TextFormatter<String>(edit -> {
+			pendingEdit = edit;
+			return edit;
+		}));
+		content.textProperty().addListener((observable, oldText, newText) -> {
+			if (pendingEdit == null) {
+				untracked = true;
+			} else {
+				int start = pendingEdit.getRangeStart();
+				int end = pendingEdit.getRangeEnd();
+				int inserted = pendingEdit.getText().length();
+				change = change == null ? TextChange.replace(start, end, inserted) : change.then(start, end, inserted);
+			}
+			pendingEdit = null;
+		});
 		
 		this.setTop(title);
 		this.setCenter(content);
@@ -39,4 +63,15 @@ public class InputPane extends BorderPane {
 	public String getText() {
 		return content.getText();
 	}
+
+	/**
+	 * Returns the edits made since the last call and starts tracking anew
+	 * @return the combined edit, or null when the text changed in a way that was not tracked
+	 */
+	public TextChange takeChange() {
+		TextChange taken = untracked ? null : (change == null ? TextChange.replace(0, 0, 0) : change);
+		change = null;
+		untracked = false;
+		return taken;
+	}
 }
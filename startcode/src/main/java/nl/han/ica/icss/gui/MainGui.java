@@ -14,6 +14,7 @@ import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.parser.IncrementalParser;
 
 import java.io.File;
 import java.io.IOException;
@@ -194,14 +195,14 @@ public class MainGui extends Application {
     private void parse() {
         clear();
         feedbackPane.addLine("Parsing...");
-        pipeline.parseString(inputPane.getText());
+        IncrementalParser.Splice splice = pipeline.reparseString(inputPane.getText(), inputPane.takeChange());
         for(String e : pipeline.getErrors()) {
             feedbackPane.addLine(e);
         }
         if (pipeline.isParsed()) {
             feedbackPane.addLine("Parsing succeeded");
         }
-        astPane.update(pipeline.getAST());
+        astPane.update(pipeline.getAST(), splice);
         updateToolbar();
     }
 
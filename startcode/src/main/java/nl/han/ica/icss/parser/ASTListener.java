@@ -27,6 +27,9 @@ public class ASTListener extends ICSSBaseListener {
 	//Use this to keep track of the parent nodes when recursively traversing the ast
 	private IHANStack<ASTNode> currentContainer;
 
+	//Shares equal subtrees when set, null builds every node on its own
+	private final SubtreeTable subtrees;
+
 	public static final String ASTRIX = "*";
 	public static final String DASH = "-";
 	public static final String PLUS = "+";
@@ -38,8 +41,17 @@ public class ASTListener extends ICSSBaseListener {
 	public static final char DOT = '.';
 
 	public ASTListener() {
+		this(null);
+	}
+
+	/**
+	 * @param subtrees table to take every finished node from, so equal subtrees are a single frozen instance.
+	 *                 Such an AST can be compared and hashed quickly, but not transformed.
+	 */
+	public ASTListener(SubtreeTable subtrees) {
 		ast = new AST();
 		currentContainer = new HANStack<>();
+		this.subtrees = subtrees;
 	}
 
     public AST getAST() {
@@ -54,16 +66,15 @@ public class ASTListener extends ICSSBaseListener {
 
 	@Override public void exitStylesheet(ICSSParser.StylesheetContext ctx) {
 		currentContainer.pop();
+		if (subtrees != null) ast.setRoot(subtrees.intern(ast.root));
 	}
 
 	@Override public void enterStyleRule(ICSSParser.StyleRuleContext ctx) {
-		Stylerule stylerule = new Stylerule();
-		ast.root.body.add(stylerule);
-		currentContainer.push(stylerule);
+		currentContainer.push(new Stylerule());
 	}
 
 	@Override public void exitStyleRule(ICSSParser.StyleRuleContext ctx) {
-		currentContainer.pop();
+		addToContainer(currentContainer.pop());
 	}
 
 	@Override public void enterSelector(ICSSParser.SelectorContext ctx) {
@@ -78,21 +89,17 @@ public class ASTListener extends ICSSBaseListener {
 			default: selector = new TagSelector(Character.toString(symbol));
 		}
 
-		currentContainer.peek().addChild(selector);
+		addToContainer(selector);
 	}
 
 	@Override public void exitSelector(ICSSParser.SelectorContext ctx) { }
 
 	@Override public void enterDeclaration(ICSSParser.DeclarationContext ctx) {
-		Declaration declaration = new Declaration();
-
-		currentContainer.peek().addChild(declaration);
-
-		currentContainer.push(declaration);
+		currentContainer.push(new Declaration());
 	}
 
 	@Override public void exitDeclaration(ICSSParser.DeclarationContext ctx) {
-		currentContainer.pop();
+		addToContainer(currentContainer.pop());
 	}
 
 	@Override public void enterLiteral(ICSSParser.LiteralContext ctx) { }
@@ -102,26 +109,23 @@ public class ASTListener extends ICSSBaseListener {
 	@Override public void enterPropertyName(ICSSParser.PropertyNameContext ctx) {
 		PropertyName propertyName = new PropertyName(ctx.getText());
 
-		currentContainer.peek().addChild(propertyName);
+		addToContainer(propertyName);
 	}
 
 	@Override public void exitPropertyName(ICSSParser.PropertyNameContext ctx) { }
 
 	@Override public void enterVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
-		VariableAssignment variableAssignment = new VariableAssignment();
-
-		currentContainer.peek().addChild(variableAssignment);
-		currentContainer.push(variableAssignment);
+		currentContainer.push(new VariableAssignment());
 	}
 
 	@Override public void exitVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
-		currentContainer.pop();
+		addToContainer(currentContainer.pop());
 	}
 
 	@Override public void enterVariableReference(ICSSParser.VariableReferenceContext ctx) {
 		VariableReference variableReference = new VariableReference(ctx.getText());
 
-		currentContainer.peek().addChild(variableReference);
+		addToContainer(variableReference);
 	}
 
 	@Override public void exitVariableReference(ICSSParser.VariableReferenceContext ctx) { }
@@ -140,31 +144,39 @@ public class ASTListener extends ICSSBaseListener {
 				default: throw new IllegalStateException("Unexpected value: " + text);
 			}
 
-			currentContainer.peek().addChild(expression);
 			currentContainer.push(expression);
 		} else {
 			String text = ctx.getChild(0).getText();
 
 			if (text.equals(TRUE) || text.equals(FALSE)){
-				expression = new BoolLiteral(text);
+				expression = BoolLiteral.valueOf(text);
 			} else if(expressionIsVariableReference(text)){
 				return;
 			} else if (expressionIsColorLiteral(text)){
-				expression = new ColorLiteral(text);
+				expression = ColorLiteral.valueOf(text);
 			} else if (expressionIsPixelLiteral(text)) {
-				expression = new PixelLiteral(text);
+				expression = PixelLiteral.valueOf(text);
 			} else if (expressionIsPercentageLiteral(text)) {
-				expression = new PercentageLiteral(text);
+				expression = PercentageLiteral.valueOf(text);
 			} else {
-				expression = new ScalarLiteral(text);
+				expression = ScalarLiteral.valueOf(text);
 			}
 
-			currentContainer.peek().addChild(expression);
+			addToContainer(expression);
 		}
 	}
 
 	@Override public void exitExpression(ICSSParser.ExpressionContext ctx) {
-		if (ctx.children.size() > 1) { currentContainer.pop(); }
+		if (!expressionIsOperation(ctx)) return;
+
+		Expression operation = (Expression) currentContainer.pop();
+
+		//Fold once the whole expression is built, a nested expression is only part of the chain
+		if (!(ctx.getParent() instanceof ICSSParser.ExpressionContext)) {
+			addToContainer(ConstantFolder.fold(operation));
+		} else {
+			currentContainer.peek().addChild(operation);
+		}
 	}
 
 	@Override public void enterOperation(ICSSParser.OperationContext ctx) { }
@@ -172,25 +184,19 @@ public class ASTListener extends ICSSBaseListener {
 	@Override public void exitOperation(ICSSParser.OperationContext ctx) { }
 
 	@Override public void enterIfClause(ICSSParser.IfClauseContext ctx) {
-		IfClause ifClause = new IfClause();
-
-		currentContainer.peek().addChild(ifClause);
-		currentContainer.push(ifClause);
+		currentContainer.push(new IfClause());
 	}
 
 	@Override public void exitIfClause(ICSSParser.IfClauseContext ctx) {
-		currentContainer.pop();
+		addToContainer(currentContainer.pop());
 	}
 
 	@Override public void enterElseClause(ICSSParser.ElseClauseContext ctx) {
-		ElseClause elseClause = new ElseClause();
-
-		currentContainer.peek().addChild(elseClause);
-		currentContainer.push(elseClause);
+		currentContainer.push(new ElseClause());
 	}
 
 	@Override public void exitElseClause(ICSSParser.ElseClauseContext ctx) {
-		currentContainer.pop();
+		addToContainer(currentContainer.pop());
 	}
 
 	@Override public void enterEveryRule(ParserRuleContext ctx) { }
@@ -201,6 +207,11 @@ public class ASTListener extends ICSSBaseListener {
 
 	@Override public void visitErrorNode(ErrorNode node) { }
 
+	//Nodes are added once they are complete, so the table can hand out the shared instance instead
+	private void addToContainer(ASTNode node) {
+		currentContainer.peek().addChild(subtrees != null ? subtrees.intern(node) : node);
+	}
+
 	private boolean expressionIsPercentageLiteral(String text) {
 		return text.charAt(text.length() - 1) == PERCENTAGE;
 	}
@@ -0,0 +1,145 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.datastructures.HANStack;
+import nl.han.ica.datastructures.IHANStack;
+import nl.han.ica.icss.ast.ArenaAST;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.gen.ICSSBaseListener;
+import nl.han.ica.icss.gen.ICSSParser;
+
+import static nl.han.ica.icss.parser.ASTListener.*;
+
+/**
+ * Extracts the same AST as the ASTListener from the Antlr Parse tree, but builds it in an ArenaAST
+ * instead of out of ASTNodes.
+ */
+public class ArenaASTListener extends ICSSBaseListener {
+
+	private final ArenaAST arena = new ArenaAST();
+
+	//The nodes that get the children of what is entered next
+	private final IHANStack<Integer> currentContainer = new HANStack<>();
+
+	public ArenaAST getArena() {
+		return arena;
+	}
+
+	@Override public void enterStylesheet(ICSSParser.StylesheetContext ctx) {
+		currentContainer.push(arena.add(ArenaAST.NONE, ArenaAST.STYLESHEET, 0));
+	}
+
+	@Override public void exitStylesheet(ICSSParser.StylesheetContext ctx) {
+		currentContainer.pop();
+	}
+
+	@Override public void enterStyleRule(ICSSParser.StyleRuleContext ctx) {
+		currentContainer.push(arena.add(arena.root(), ArenaAST.STYLERULE, 0));
+	}
+
+	@Override public void exitStyleRule(ICSSParser.StyleRuleContext ctx) {
+		currentContainer.pop();
+	}
+
+	@Override public void enterSelector(ICSSParser.SelectorContext ctx) {
+		char symbol = ctx.getChild(0).getText().charAt(0);
+		String tagName = ctx.getChild(0).getText().substring(1);
+
+		switch (symbol){
+			case DOT: arena.add(currentContainer.peek(), ArenaAST.ID_SELECTOR, tagName); break;
+			case POUND_SIGN: arena.add(currentContainer.peek(), ArenaAST.CLASS_SELECTOR, tagName); break;
+			default: arena.add(currentContainer.peek(), ArenaAST.TAG_SELECTOR, Character.toString(symbol));
+		}
+	}
+
+	@Override public void enterDeclaration(ICSSParser.DeclarationContext ctx) {
+		currentContainer.push(arena.add(currentContainer.peek(), ArenaAST.DECLARATION, 0));
+	}
+
+	@Override public void exitDeclaration(ICSSParser.DeclarationContext ctx) {
+		currentContainer.pop();
+	}
+
+	@Override public void enterPropertyName(ICSSParser.PropertyNameContext ctx) {
+		arena.add(currentContainer.peek(), ArenaAST.PROPERTY_NAME, ctx.getText());
+	}
+
+	@Override public void enterVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
+		currentContainer.push(arena.add(currentContainer.peek(), ArenaAST.VARIABLE_ASSIGNMENT, 0));
+	}
+
+	@Override public void exitVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
+		currentContainer.pop();
+	}
+
+	@Override public void enterVariableReference(ICSSParser.VariableReferenceContext ctx) {
+		arena.add(currentContainer.peek(), ArenaAST.VARIABLE_REFERENCE, ctx.getText());
+	}
+
+	@Override public void enterExpression(ICSSParser.ExpressionContext ctx) {
+		int container = currentContainer.peek();
+
+		if (expressionIsOperation(ctx)) {
+			String text = ctx.getChild(1).getText();
+
+			switch (text){
+				case ASTRIX: currentContainer.push(arena.add(container, ArenaAST.MULTIPLY_OPERATION, 0)); break;
+				case DASH: currentContainer.push(arena.add(container, ArenaAST.SUBTRACT_OPERATION, 0)); break;
+				case PLUS: currentContainer.push(arena.add(container, ArenaAST.ADD_OPERATION, 0)); break;
+				default: throw new IllegalStateException("Unexpected value: " + text);
+			}
+		} else {
+			String text = ctx.getChild(0).getText();
+
+			if (text.equals(TRUE) || text.equals(FALSE)){
+				arena.add(container, ArenaAST.BOOL_LITERAL, text.equals(TRUE) ? 1 : 0);
+			} else if (Character.isUpperCase(text.charAt(0))){
+				return;
+			} else if (text.charAt(0) == POUND_SIGN){
+				arena.add(container, ArenaAST.COLOR_LITERAL, text);
+			} else if (text.charAt(text.length() - 1) == X) {
+				arena.add(container, ArenaAST.PIXEL_LITERAL, PixelLiteral.valueOf(text).value);
+			} else if (text.charAt(text.length() - 1) == PERCENTAGE) {
+				arena.add(container, ArenaAST.PERCENTAGE_LITERAL, PercentageLiteral.valueOf(text).value);
+			} else {
+				arena.add(container, ArenaAST.SCALAR_LITERAL, ScalarLiteral.valueOf(text).value);
+			}
+		}
+	}
+
+	@Override public void exitExpression(ICSSParser.ExpressionContext ctx) {
+		if (!expressionIsOperation(ctx)) return;
+
+		int operation = currentContainer.pop();
+
+		//Folded like the ASTListener does, the whole expression is the last subtree of the arena
+		if (!(ctx.getParent() instanceof ICSSParser.ExpressionContext)) {
+			Expression folded = ConstantFolder.fold((Expression) arena.toNode(operation));
+
+			arena.removeLast(operation);
+			arena.add(currentContainer.peek(), folded);
+		}
+	}
+
+	@Override public void enterIfClause(ICSSParser.IfClauseContext ctx) {
+		currentContainer.push(arena.add(currentContainer.peek(), ArenaAST.IF_CLAUSE, 0));
+	}
+
+	@Override public void exitIfClause(ICSSParser.IfClauseContext ctx) {
+		currentContainer.pop();
+	}
+
+	@Override public void enterElseClause(ICSSParser.ElseClauseContext ctx) {
+		currentContainer.push(arena.add(currentContainer.peek(), ArenaAST.ELSE_CLAUSE, 0));
+	}
+
+	@Override public void exitElseClause(ICSSParser.ElseClauseContext ctx) {
+		currentContainer.pop();
+	}
+
+	private boolean expressionIsOperation(ICSSParser.ExpressionContext ctx ){
+		return ctx.children.size() > 1;
+	}
+}
@@ -0,0 +1,113 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replaces the literal-only part of an expression by the literal it evaluates to, so the checker and
+ * the evaluator never see it.
+ *
+ * The grammar gives every operator the same precedence, an expression is a chain that leans to the left:
+ * 1px + 2px * 3 becomes ((1px + 2px) * 3). Only the lhs of an operation can be another operation, so the
+ * literal-only parts are the operations at the bottom of the chain. Such a part is folded with
+ * multiplication before addition and subtraction, and only when it holds a complete sum: in
+ * (1px + 2px) * 3 the 2px still has to be multiplied.
+ *
+ * A part the Checker would report a type error for is left alone, so the error is reported as before.
+ */
+final class ConstantFolder {
+
+    private ConstantFolder() {
+    }
+
+    /**
+     * @param expression the expression of a declaration or variable assignment
+     * @return the expression with its literal-only part folded, or the literal the whole expression folds to
+     */
+    static Expression fold(Expression expression) {
+        //The operations from the bottom of the chain up
+        List<Operation> chain = new ArrayList<>();
+        Expression operand = expression;
+        while (operand instanceof Operation) {
+            chain.add((Operation) operand);
+            operand = ((Operation) operand).lhs;
+        }
+        Collections.reverse(chain);
+
+        ExpressionType type = typeOf(operand);
+        if (type == null) return expression;
+
+        int sum = 0;
+        int sign = 1;
+        int term = valueOf((Literal) operand);
+        boolean multiplicationsOnly = true;
+
+        int folded = -1;
+        Literal result = null;
+
+        for (int i = 0; i < chain.size(); i++) {
+            Operation operation = chain.get(i);
+            ExpressionType rhsType = typeOf(operation.rhs);
+            if (rhsType == null) break;
+
+            int rhs = valueOf((Literal) operation.rhs);
+
+            if (operation instanceof MultiplyOperation) {
+                if (type != ExpressionType.SCALAR && rhsType != ExpressionType.SCALAR) break;
+                term *= rhs;
+            } else {
+                if (type != rhsType) break;
+                sum += sign * term;
+                sign = operation instanceof SubtractOperation ? -1 : 1;
+                term = rhs;
+                multiplicationsOnly = false;
+            }
+            if (type == ExpressionType.SCALAR) type = rhsType;
+
+            boolean lastOfChain = i == chain.size() - 1;
+            if (lastOfChain || multiplicationsOnly || !(chain.get(i + 1) instanceof MultiplyOperation)) {
+                folded = i;
+                result = literalOf(type, sum + sign * term);
+            }
+        }
+
+        if (result == null) return expression;
+        if (folded == chain.size() - 1) return result;
+
+        chain.get(folded + 1).lhs = result;
+        return expression;
+    }
+
+    //Same as the Checker's type inference, null for what cannot be folded
+    private static ExpressionType typeOf(Expression expression) {
+        if (expression instanceof PixelLiteral) return ExpressionType.PIXEL;
+        if (expression instanceof PercentageLiteral) return ExpressionType.PERCENTAGE;
+        if (expression instanceof ScalarLiteral) return ExpressionType.SCALAR;
+        return null;
+    }
+
+    private static int valueOf(Literal literal) {
+        if (literal instanceof PixelLiteral) return ((PixelLiteral) literal).value;
+        if (literal instanceof PercentageLiteral) return ((PercentageLiteral) literal).value;
+        return ((ScalarLiteral) literal).value;
+    }
+
+    private static Literal literalOf(ExpressionType type, int value) {
+        switch (type) {
+            case PIXEL: return PixelLiteral.valueOf(value);
+            case PERCENTAGE: return PercentageLiteral.valueOf(value);
+            default: return ScalarLiteral.valueOf(value);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.gen.ICSSParser;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the AST of the last parsed text together with the character range of every top-level
+ * statement. After an edit only the statements the edit touches are lexed and parsed again,
+ * the new statements are spliced into the existing stylesheet in place of the old ones.
+ *
+ * Top-level statements always end with a ';' or '}' and the lexer has no modes, so a region that
+ * runs from the end of one untouched statement to the start of the next lexes the same on its own
+ * as it does as part of the whole text.
+ */
+public class IncrementalParser {
+
+    private final ANTLRErrorListener errorListener;
+    private final boolean sllFirst;
+
+    private AST ast;
+    private String text;
+    //Character range of every statement in ast.root.body, in the same order
+    private final List<Span> spans = new ArrayList<>();
+    private boolean valid = false;
+
+    /**
+     * @param errorListener receives the syntax errors of every full parse
+     */
+    public IncrementalParser(ANTLRErrorListener errorListener) {
+        this(errorListener, true);
+    }
+
+    /**
+     * @param errorListener receives the syntax errors of every full parse
+     * @param sllFirst try the faster SLL prediction first and only parse with full LL prediction when that fails,
+     *                 false always parses with full LL prediction
+     */
+    public IncrementalParser(ANTLRErrorListener errorListener, boolean sllFirst) {
+        this.errorListener = errorListener;
+        this.sllFirst = sllFirst;
+    }
+
+    public AST getAST() {
+        return ast;
+    }
+
+    /**
+     * Parses the whole text. Only a text without syntax errors can be updated incrementally afterwards.
+     */
+    public AST parse(String text) {
+        valid = false;
+
+        SyntaxErrorCounter counter = new SyntaxErrorCounter();
+        Statements statements = buildStatements(parseTree(text, new ProxyErrorListener(List.of(errorListener, counter)), sllFirst), 0);
+
+        this.ast = statements.ast;
+        this.text = text;
+        spans.clear();
+        spans.addAll(statements.spans);
+        valid = counter.errors == 0;
+
+        return ast;
+    }
+
+    /**
+     * Brings the AST up to date with an edited text by parsing only the statements the change touches
+     * @param newText the whole text after the edit
+     * @param change the edit since the last parse, or null to find it by comparing the texts
+     * @return the statements replaced in the stylesheet, or null when the whole text had to be parsed again
+     */
+    public Splice update(String newText, TextChange change) {
+        if (!valid) {
+            parse(newText);
+            return null;
+        }
+
+        if (change == null) change = TextChange.between(text, newText);
+        if (change.oldEnd > text.length() || newText.length() - text.length() != change.delta()) {
+            parse(newText);
+            return null;
+        }
+
+        if (change.start == change.oldEnd && change.start == change.newEnd) return new Splice(0, 0, 0);
+
+        //Stays invalid when the listener fails on the new statements
+        valid = false;
+
+        int first = firstSpanEndingAtOrAfter(change.start);
+        int afterLast = firstSpanStartingAfter(change.oldEnd);
+
+        //Reparse from the end of the last untouched statement up to the start of the next one
+        int regionStart = first > 0 ? spans.get(first - 1).end : 0;
+        int regionOldEnd = afterLast < spans.size() ? spans.get(afterLast).start : text.length();
+        int regionNewEnd = regionOldEnd + change.delta();
+
+        SyntaxErrorCounter counter = new SyntaxErrorCounter();
+        ICSSParser.StylesheetContext region = parseTree(newText.substring(regionStart, regionNewEnd), counter, sllFirst);
+
+        //The error messages of a full parse are the ones to report. The tree ANTLR recovered from the errors
+        //is not built, the ASTListener can fail on it where it does not on the tree of the whole text.
+        if (counter.errors != 0) {
+            parse(newText);
+            return null;
+        }
+        Statements statements = buildStatements(region, regionStart);
+
+        List<ASTNode> body = ast.root.body;
+        body.subList(first, afterLast).clear();
+        body.addAll(first, statements.ast.root.body);
+
+        spans.subList(first, afterLast).clear();
+        spans.addAll(first, statements.spans);
+        for (int i = first + statements.spans.size(); i < spans.size(); i++) spans.get(i).shift(change.delta());
+
+        text = newText;
+        valid = true;
+        return new Splice(first, afterLast - first, statements.spans.size());
+    }
+
+    /**
+     * Forgets the current AST, e.g. after a transformation rewrote it, so the next update parses everything
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    private int firstSpanEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = spans.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (spans.get(middle).end < offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private int firstSpanStartingAfter(int offset) {
+        int low = 0;
+        int high = spans.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (spans.get(middle).start <= offset) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static ICSSParser.StylesheetContext parseTree(String source, ANTLRErrorListener errorListener, boolean sllFirst) {
+        ICSSParser.StylesheetContext stylesheet = sllFirst ? parseSll(source) : null;
+        return stylesheet != null ? stylesheet : parseLl(source, errorListener);
+    }
+
+    private static Statements buildStatements(ICSSParser.StylesheetContext stylesheet, int offset) {
+        //Extract AST from the Antlr parse tree
+        ASTListener listener = new ASTListener();
+        new IterativeParseTreeWalker().walk(listener, stylesheet);
+
+        List<Span> spans = new ArrayList<>();
+        for (ParseTree child : stylesheet.children == null ? List.<ParseTree>of() : stylesheet.children) {
+            if (!(child instanceof ParserRuleContext)) continue;
+
+            ParserRuleContext statement = (ParserRuleContext) child;
+            spans.add(new Span(offset + statement.getStart().getStartIndex(),
+                               offset + statement.getStop().getStopIndex() + 1));
+        }
+
+        return new Statements(listener.getAST(), spans);
+    }
+
+    private static ICSSParser.StylesheetContext parseLl(String source, ANTLRErrorListener errorListener) {
+        return ParserFactory.parse(source, (lexer, parser) -> {
+            lexer.addErrorListener(errorListener);
+            parser.addErrorListener(errorListener);
+            return parser.stylesheet();
+        });
+    }
+
+    /*
+     SLL prediction ignores the parser's call stack, which makes it a lot cheaper but means it can fail on input
+     that full LL parses fine. When it succeeds the parse tree is the one LL would build, so SLL is tried first and
+     bails out at the first error without reporting anything. Any syntax error, also one of the lexer, returns null
+     and the input is parsed again with LL, which reports the errors in the same order as a single LL parse.
+     */
+    private static ICSSParser.StylesheetContext parseSll(String source) {
+        return ParserFactory.parse(source, (lexer, parser) -> {
+            SyntaxErrorCounter lexerErrors = new SyntaxErrorCounter();
+            lexer.addErrorListener(lexerErrors);
+
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+            try {
+                ICSSParser.StylesheetContext stylesheet = parser.stylesheet();
+                return lexerErrors.errors == 0 ? stylesheet : null;
+            } catch (ParseCancellationException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * The top-level statements replaced by an update: the removed statements started at index,
+     * the added statements are the ones at [index, index + added) of the stylesheet body.
+     */
+    public static class Splice {
+
+        public final int index;
+        public final int removed;
+        public final int added;
+
+        public Splice(int index, int removed, int added) {
+            this.index = index;
+            this.removed = removed;
+            this.added = added;
+        }
+    }
+
+    private static class Statements {
+
+        final AST ast;
+        final List<Span> spans;
+
+        Statements(AST ast, List<Span> spans) {
+            this.ast = ast;
+            this.spans = spans;
+        }
+    }
+
+    private static class Span {
+
+        int start;
+        int end;
+
+        Span(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void shift(int delta) {
+            start += delta;
+            end += delta;
+        }
+    }
+
+    private static class SyntaxErrorCounter extends BaseErrorListener {
+
+        int errors = 0;
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            errors++;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.gen.ICSSLexer;
+import nl.han.ica.icss.gen.ICSSParser;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+
+/**
+ * Hands out one lexer and parser per thread, reused for every input parsed on that thread instead of
+ * constructing new ones each time.
+ *
+ * All lexers and parsers share ANTLR's static DFA cache, which fills up while they parse: the first inputs
+ * pay for simulating the ATN, later ones mostly follow cached DFA edges. warmUp fills the cache up front so
+ * the first real input is as fast as the rest, clearDFACache empties it to release its memory, and
+ * getMetrics tells how large it has grown.
+ */
+public final class ParserFactory {
+
+    private static final ThreadLocal<Instances> INSTANCES = ThreadLocal.withInitial(Instances::new);
+
+    private ParserFactory() {
+    }
+
+    /**
+     * Points this thread's lexer and parser at the source and lets the action parse it. Before the action
+     * runs both have no error listeners, the default error strategy and LL prediction, whatever the
+     * previous action changed. Afterwards they let go of the source and the listeners again.
+     * @param source the text to parse
+     * @param action adds listeners and configures the parser as needed, then parses
+     * @return what the action returned
+     */
+    public static <T> T parse(String source, ParseAction<T> action) {
+        Instances instances = INSTANCES.get();
+        if (instances.inUse) {
+            //Parsing from within an action, e.g. a listener, gets its own lexer and parser
+            return new Instances().parse(source, action);
+        }
+
+        instances.inUse = true;
+        try {
+            return instances.parse(source, action);
+        } finally {
+            instances.inUse = false;
+        }
+    }
+
+    /**
+     * Parses a generated sheet that uses every construct of the language, so the DFA cache already holds the
+     * common paths when the first real input arrives
+     */
+    public static void warmUp() {
+        String sample = new WorkloadGenerator().rules(50).nestingDepth(3).expressionLength(6).seed(0).generate();
+        parse(sample, (lexer, parser) -> parser.stylesheet());
+    }
+
+    /**
+     * Empties the DFA cache shared by all lexers and parsers. Parses that are running meanwhile finish with
+     * the states they already reached, the cache fills up again from the next parse on.
+     *
+     * ANTLR's cache of prediction contexts has no way to be cleared, it is part of the metrics to keep an eye on.
+     */
+    public static void clearDFACache() {
+        Instances instances = INSTANCES.get();
+        instances.lexer.getInterpreter().clearDFA();
+        instances.parser.getInterpreter().clearDFA();
+    }
+
+    public static Metrics getMetrics() {
+        Instances instances = INSTANCES.get();
+        return new Metrics(countStates(instances.lexer.getInterpreter().decisionToDFA),
+                           countStates(instances.parser.getInterpreter().decisionToDFA),
+                           instances.parser.getInterpreter().getSharedContextCache().size());
+    }
+
+    private static int countStates(DFA[] decisionToDFA) {
+        int states = 0;
+        for (DFA dfa : decisionToDFA) states += dfa.states.size();
+        return states;
+    }
+
+    public interface ParseAction<T> {
+        T parse(ICSSLexer lexer, ICSSParser parser);
+    }
+
+    /**
+     * Size of the shared DFA cache: the DFA states of all lexer modes and of all parser decisions,
+     * and the prediction contexts the parser states refer to
+     */
+    public static class Metrics {
+
+        public final int lexerDFAStates;
+        public final int parserDFAStates;
+        public final int sharedContexts;
+
+        public Metrics(int lexerDFAStates, int parserDFAStates, int sharedContexts) {
+            this.lexerDFAStates = lexerDFAStates;
+            this.parserDFAStates = parserDFAStates;
+            this.sharedContexts = sharedContexts;
+        }
+
+        @Override
+        public String toString() {
+            return "lexer DFA states: " + lexerDFAStates + ", parser DFA states: " + parserDFAStates
+                    + ", shared contexts: " + sharedContexts;
+        }
+    }
+
+    private static class Instances {
+
+        final ICSSLexer lexer = new ICSSLexer(null);
+        final CommonTokenStream tokens = new CommonTokenStream(lexer);
+        final ICSSParser parser = new ICSSParser(tokens);
+        boolean inUse = false;
+
+        <T> T parse(String source, ParseAction<T> action) {
+            lexer.setInputStream(CharStreams.fromString(source));
+            tokens.setTokenSource(lexer);
+            parser.setTokenStream(tokens);
+
+            lexer.removeErrorListeners();
+            parser.removeErrorListeners();
+            parser.removeParseListeners();
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+
+            try {
+                return action.parse(lexer, parser);
+            } finally {
+                //Keep neither the text, its tokens nor whoever listened to them alive until the next parse
+                parser.reset();
+                lexer.setInputStream(null);
+                tokens.setTokenSource(lexer);
+                lexer.removeErrorListeners();
+                parser.removeErrorListeners();
+                parser.removeParseListeners();
+            }
+        }
+    }
+}
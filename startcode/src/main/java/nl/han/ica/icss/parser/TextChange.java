@@ -0,0 +1,76 @@
+package nl.han.ica.icss.parser;
+
+/**
+ * A contiguous edit of a text: the characters [start, oldEnd) of the old text were replaced
+ * by the characters [start, newEnd) of the new text. A series of edits merges into the single
+ * change that covers all of them.
+ */
+public final class TextChange {
+
+    public final int start;
+    public final int oldEnd;
+    public final int newEnd;
+
+    public TextChange(int start, int oldEnd, int newEnd) {
+        this.start = start;
+        this.oldEnd = oldEnd;
+        this.newEnd = newEnd;
+    }
+
+    /**
+     * The change made by replacing the characters [start, end) with insertedLength new characters
+     */
+    public static TextChange replace(int start, int end, int insertedLength) {
+        return new TextChange(start, end, start + insertedLength);
+    }
+
+    /**
+     * Finds the smallest change that turns one text into the other by skipping their common prefix and suffix
+     */
+    public static TextChange between(String oldText, String newText) {
+        int shortest = Math.min(oldText.length(), newText.length());
+
+        int prefix = 0;
+        while (prefix < shortest && oldText.charAt(prefix) == newText.charAt(prefix)) prefix++;
+
+        int suffix = 0;
+        while (suffix < shortest - prefix &&
+               oldText.charAt(oldText.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        return new TextChange(prefix, oldText.length() - suffix, newText.length() - suffix);
+    }
+
+    /**
+     * Merges a following edit into this change
+     * @param start start of the replaced characters in the text after this change
+     * @param end end (exclusive) of the replaced characters in the text after this change
+     * @param insertedLength number of characters inserted in their place
+     * @return the change from the old text to the text after both edits
+     */
+    public TextChange then(int start, int end, int insertedLength) {
+        int editDelta = insertedLength - (end - start);
+
+        //The end of the edit in old text coordinates, edits ending inside this change end where it ends
+        int editOldEnd = end >= newEnd ? end - delta() : oldEnd;
+        //The end of this change in the text after the edit
+        int shiftedNewEnd = newEnd <= start ? newEnd : (newEnd >= end ? newEnd + editDelta : start + insertedLength);
+
+        return new TextChange(Math.min(this.start, start),
+                Math.max(oldEnd, editOldEnd),
+                Math.max(shiftedNewEnd, start + insertedLength));
+    }
+
+    /**
+     * @return the difference in length between the new and the old text
+     */
+    public int delta() {
+        return newEnd - oldEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + oldEnd + ") -> [" + start + ", " + newEnd + ")";
+    }
+}
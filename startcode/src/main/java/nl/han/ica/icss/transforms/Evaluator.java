@@ -3,61 +3,156 @@ package nl.han.ica.icss.transforms;
 import nl.han.ica.datastructures.HANStack;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
-import nl.han.ica.icss.ast.operations.AddOperation;
 import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
-import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.Checker;
 import nl.han.ica.icss.checker.VariableManager;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 public class Evaluator implements Transform {
 
-    private final VariableManager varManager = new VariableManager();
+    private final VariableManager varManager;
     private final HANStack<ASTNode> container = new HANStack<>();
 
     private AST ast = null;
+    private Checker checker = null;
+
+    public Evaluator() {
+        this(new VariableManager());
+    }
+
+    public Evaluator(VariableManager varManager) {
+        this.varManager = varManager;
+    }
 
     @Override
     public void apply(AST ast) {
         this.ast = ast;
-        walkASTRecursive(ast.root);
-        System.out.println();
+        new EvaluateWalker().walk(ast.root);
     }
 
-    private void walkASTRecursive(ASTNode astNode) {
+    /**
+     * Evaluates a single top-level statement of the AST, continuing from the variables
+     * the statements evaluated before it left in this evaluator's VariableManager
+     */
+    public void applyStatement(AST ast, ASTNode statement) {
+        this.ast = ast;
+        container.push(ast.root);
+        try {
+            new EvaluateWalker().walk(statement);
+        } finally {
+            container.pop();
+        }
+    }
 
-        varManager.determineExpTypeOfVarAssignment(astNode);
+    /**
+     * Type checks and evaluates the AST in a single traversal. Every node is checked right before it is
+     * evaluated, with the checker declaring the variables in the scopes of this evaluator. From the first
+     * error on the remaining nodes are only checked, so the errors are the same as a separate check
+     * and a clean sheet ends up the same as a separate transform.
+     * @param checker a checker sharing this evaluator's VariableManager
+     */
+    public void checkAndApply(AST ast, Checker checker) {
+        this.checker = checker;
+        try {
+            apply(ast);
+        } finally {
+            this.checker = null;
+        }
+    }
+
+    private boolean evaluating() {
+        return checker == null || !checker.hasErrors();
+    }
 
-        if(astNode instanceof VariableAssignment){
-            varManager.setVariableAssignmentValues((VariableAssignment) astNode);
+    // The container stack holds the nodes whose children are being walked, the parent of a node is on top.
+    // Evaluating an if clause moves its body into the parent while the parent's children are
+    // being walked, so bodies that can hold an if clause are walked from a copy.
+    private class EvaluateWalker extends ASTWalker {
+
+        private final EvaluateVisitor visitor = new EvaluateVisitor();
+
+        @Override
+        protected boolean enter(ASTNode node) {
+            if(!node.accept(visitor)) return false;
+
+            if(opensScope(node)) varManager.openScope();
+            container.push(node);
+            return true;
         }
 
-        if(astNode instanceof Expression && !(astNode instanceof VariableReference)) {
-            evaluateExpression((Expression) astNode);
+        @Override
+        protected void exit(ASTNode node) {
+            container.pop();
+            if(!opensScope(node)) return;
 
-            if (container.peek() instanceof VariableAssignment) {
-                varManager.setVariableAssignmentValues((VariableAssignment) container.peek());
-            }
+            varManager.closeScope();
+            if(node instanceof IfClause && evaluating()) evaluateIfClause((IfClause) node);
         }
 
-        if(astNode instanceof VariableReference &&
-           !(container.peek() instanceof IfClause) &&
-           !(container.peek() instanceof VariableAssignment))
-        {
-            ASTNode parent = (ASTNode) container.peek();
-            replaceReferenceWithLiteral((Expression) astNode);
+        @Override
+        protected boolean walkFromCopy(ASTNode node) {
+            return opensScope(node);
         }
 
-        if(astNode.getChildren().size() != 0) container.push(astNode);
+        private boolean opensScope(ASTNode node) {
+            return node instanceof Stylerule || node instanceof IfClause || node instanceof ElseClause;
+        }
+    }
 
-        for (ASTNode childNode: astNode.getChildren()) {
-            if(!(astNode instanceof Expression)) walkASTRecursive(childNode);
+    // Evaluates a node before its children are walked, the result tells whether to walk them
+    private class EvaluateVisitor extends ASTBaseVisitor<Boolean> {
+
+        @Override
+        public Boolean visitNode(ASTNode node) {
+            if(checker != null) checker.checkNode(node);
+            return true;
         }
 
-        if(astNode.getChildren().size() != 0) container.pop();
+        @Override
+        public Boolean visitStylerule(Stylerule node) {
+            return true;
+        }
 
-        if(astNode instanceof IfClause) evaluateIfClause((IfClause) astNode);
+        @Override
+        public Boolean visitElseClause(ElseClause node) {
+            return true;
+        }
+
+        @Override
+        public Boolean visitVariableAssignment(VariableAssignment node) {
+            if(checker != null) checker.checkNode(node);
+            else varManager.determineExpTypeOfVarAssignment(node);
+
+            varManager.setVariableAssignmentValues(node);
+            return true;
+        }
+
+        @Override
+        public Boolean visitExpression(Expression node) {
+            if(checker != null) checker.checkExpression(node);
+            if(!evaluating()) return false;
+
+            evaluateExpression(node);
+
+            if (container.peek() instanceof VariableAssignment) {
+                varManager.setVariableAssignmentValues((VariableAssignment) container.peek());
+            }
+            return false;
+        }
+
+        @Override
+        public Boolean visitVariableReference(VariableReference node) {
+            if(checker != null) checker.checkNode(node);
+            if(!evaluating()) return false;
+
+            if(!(container.peek() instanceof IfClause) && !(container.peek() instanceof VariableAssignment)) {
+                replaceReferenceWithLiteral(node);
+            }
+            return false;
+        }
     }
 
     private void evaluateIfClause(IfClause ifClause) {
@@ -73,56 +168,58 @@ public class Evaluator implements Transform {
         }
     }
 
+    // An operation is evaluated the way it reads, multiplications before additions and subtractions. The parser
+    // builds a chain that leans to the left, 1px + 2px * 3 becomes ((1px + 2px) * 3), so the operands are taken
+    // in order from an explicit stack and the whole operation is replaced by a single literal.
     private void evaluateExpression(Expression exp) {
-
-        container.push(exp);
-
-        for(ASTNode child: exp.getChildren()){
-            evaluateExpression((Expression) child);
+        //Evaluated as it is, its type is not asked for again
+        if(!(exp instanceof Operation)) {
+            varManager.forgetExpressionTypes(exp);
+            return;
         }
 
-        container.pop();
-
-        // When the expression is resolved sometimes the recursion is not done yet. This will lead to incorrect
-        // calculations. This checks if the remaining recursion should stop.
-        if(exp instanceof Operation && ExpressionIsResolved(exp)) return;
-
-        if(exp instanceof VariableReference) replaceReferenceWithLiteral(exp);
-
-        if(exp instanceof AddOperation || exp instanceof SubtractOperation){
-            ASTNode parent = (ASTNode) container.peek();
+        Deque<Operation> operations = new ArrayDeque<>();
+        Expression operand = exp;
+        Operation operator = null;
 
-            if(parent instanceof MultiplyOperation){
-                ASTNode grandParent = (ASTNode) container.peek(2);
+        int sum = 0;
+        int sign = 1;
+        int term = 0;
 
-                int multiplication = calculateMultiplyOpp((MultiplyOperation) parent);
-
-                replaceMultiplyOpp(grandParent, (MultiplyOperation) parent, multiplication);
-
-                int result = calculateAddOrSubtractOpp((Operation) exp);
+        while(true) {
+            while(operand instanceof Operation) {
+                operations.push((Operation) operand);
+                operand = ((Operation) operand).lhs;
+            }
 
-                if(grandParent instanceof Operation){
-                    ((Operation) grandParent).lhs = constructLiteral((Expression) parent, result);
-                } else {
-                    grandParent.removeChild(parent);
-                    grandParent.addChild(constructLiteral((Expression) parent, result));
-                }
+            //Booleans and colors have no value to calculate with, a product with one is 0 like it always was
+            Integer literalValue = getValueOfLiteral(valueOfOperand(operand));
+            int value = literalValue != null ? literalValue : 0;
 
+            if(operator == null) {
+                term = value;
+            } else if(operator instanceof MultiplyOperation) {
+                term *= value;
             } else {
-                int result = calculateAddOrSubtractOpp((Operation) exp);
-
-                parent.removeChild(exp);
-                parent.addChild(constructLiteral(exp, result));
+                sum += sign * term;
+                sign = operator instanceof SubtractOperation ? -1 : 1;
+                term = value;
             }
-        } else if(exp instanceof MultiplyOperation){
-            ASTNode parent = (ASTNode) container.peek();
-
-            int multiplication = calculateMultiplyOpp((MultiplyOperation) exp);
 
-            Literal newLiteral = constructLiteral(exp, multiplication);
-            parent.removeChild(exp);
-            parent.addChild(newLiteral);
+            if(operations.isEmpty()) break;
+            operator = operations.pop();
+            operand = operator.rhs;
         }
+
+        ASTNode parent = (ASTNode) container.peek();
+        parent.removeChild(exp);
+        parent.addChild(constructLiteral(exp, sum + sign * term));
+        varManager.forgetExpressionTypes(exp);
+    }
+
+    private Literal valueOfOperand(Expression operand) {
+        if(operand instanceof VariableReference) return varManager.getValueOfVarReference((VariableReference) operand);
+        return (Literal) operand;
     }
 
     private void replaceReferenceWithLiteral(Expression exp) {
@@ -131,7 +228,7 @@ public class Evaluator implements Transform {
         Literal newLiteral;
 
         if(referencedValue instanceof ColorLiteral){
-            newLiteral = new ColorLiteral(((ColorLiteral) referencedValue).value);
+            newLiteral = referencedValue;
         } else {
             newLiteral = constructLiteral(exp, getValueOfLiteral(referencedValue));
         }
@@ -139,7 +236,7 @@ public class Evaluator implements Transform {
         ASTNode parent = (ASTNode) container.peek();
         parent.removeChild(exp);
         parent.addChild(newLiteral);
-        System.out.println("");
+        varManager.forgetExpressionTypes(exp);
     }
 
     public Integer getValueOfLiteral(Literal literal) {
@@ -154,103 +251,24 @@ public class Evaluator implements Transform {
         return null;
     }
 
-    private boolean ExpressionIsResolved(Expression exp){
-
-        ASTNode current = exp;
-        int indexCount = 0;
-
-        while (current instanceof Operation){
-            if(indexCount != 0) current = (ASTNode) container.peek(indexCount);
-            else                current = (ASTNode) container.peek();
-
-            indexCount++;
-        }
-
-        ArrayList<ASTNode> children = current.getChildren();
-
-        for (ASTNode child: children) if (child instanceof Operation) return false;
-
-        return true;
-    }
-
-    private int calculateAddOrSubtractOpp(Operation opp) {
-
-        if(opp.lhs instanceof Literal){
-            final Literal oppRhs = (Literal) opp.rhs;
-            final Literal oppLhs = (Literal) opp.lhs;
-            return performAddOrSubtract(opp, getValueOfLiteral(oppLhs), getValueOfLiteral(oppRhs));
-        } else if (opp.lhs instanceof AddOperation){
-            final Literal oppLhs = (Literal) ((AddOperation) opp.lhs).rhs;
-            final Literal oppRhs = (Literal) opp.rhs;
-            return performAddOrSubtract(opp, getValueOfLiteral(oppLhs), getValueOfLiteral(oppRhs));
-        } else if (opp.lhs instanceof SubtractOperation){
-            final Literal oppLhs = (Literal) ((SubtractOperation) opp.lhs).rhs;
-            final Literal oppRhs = (Literal) opp.rhs;
-            return performAddOrSubtract(opp, getValueOfLiteral(oppLhs), getValueOfLiteral(oppRhs));
-        }
-
-        return 0;
-    }
-
-    private int performAddOrSubtract(Operation opp, int lhs, int rhs){
-        return opp instanceof AddOperation ? lhs + rhs : lhs - rhs;
-    }
-
-    private void replaceMultiplyOpp(ASTNode grandParent, MultiplyOperation multiplyOpp, int multiplication) {
-        final Expression lhs = multiplyOpp.lhs;
-
-        if(lhs instanceof Operation){
-            ((Operation) lhs).rhs = constructLiteral(multiplyOpp, multiplication);
-        }
-
-        if(grandParent instanceof Operation){
-            ((Operation) grandParent).lhs = lhs;
-        } else {
-            grandParent.removeChild(multiplyOpp);
-            grandParent.addChild(multiplyOpp.lhs);
-        }
-    }
-
-    private int calculateMultiplyOpp(MultiplyOperation exp){
-        Integer lhsValue = null;
-        Integer rhsValue = null;
-
-        if(exp.lhs instanceof Literal){
-            lhsValue = getValueOfLiteral((Literal) exp.lhs);
-        } else if(exp.lhs instanceof Operation) {
-            lhsValue = getValueOfLiteral((Literal) ((Operation) exp.lhs).rhs);
-        }
-
-        if(exp.rhs instanceof Literal){
-            rhsValue = getValueOfLiteral((Literal) exp.rhs);
-        }
-
-        if(lhsValue != null && rhsValue != null){
-            return lhsValue * rhsValue;
-        }
-
-        return 0;
-    }
-
     private Literal constructLiteral(Expression exp, int value){
         switch(varManager.getExpressionType(exp)){
-            case PIXEL: return new PixelLiteral(value);
-            case PERCENTAGE: return new PercentageLiteral(value);
-            default: return new ScalarLiteral(value);
+            case PIXEL: return PixelLiteral.valueOf(value);
+            case PERCENTAGE: return PercentageLiteral.valueOf(value);
+            default: return ScalarLiteral.valueOf(value);
         }
     }
 
     private void adoptChildren(ASTNode bioParent, ASTNode adopter, ASTNode exceptFor) {
-        ArrayList<ASTNode> children = bioParent.getChildren();
-        for (ASTNode child : children) {
+        for (int i = 0; i < bioParent.getChildCount(); i++) {
+            ASTNode child = bioParent.getChild(i);
             if(child.equals(exceptFor)) continue;
             adopter.addChild(child);
         }
     }
 
     private void adoptChildren(ASTNode bioParent, ASTNode adopter) {
-        ArrayList<ASTNode> children = bioParent.getChildren();
-        for (ASTNode child : children) adopter.addChild(child);
+        for (int i = 0; i < bioParent.getChildCount(); i++) adopter.addChild(bioParent.getChild(i));
     }
 
     private boolean conditionIsTrue(Expression exp) {
@@ -0,0 +1,215 @@
+package nl.han.ica.icss.workload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Generates valid ICSS of a configurable size and shape for benchmarks and soak tests.
+ * The same settings and seed always produce the same stylesheet.
+ *
+ * Every generated sheet passes the checker: widths and heights get pixel expressions, colors get color
+ * literals or color variables and if-clauses only test boolean variables.
+ */
+public class WorkloadGenerator {
+
+    public static final String PIXEL_VARIABLE = "Size";
+    public static final String SCALAR_VARIABLE = "Factor";
+    public static final String COLOR_VARIABLE = "Tint";
+    public static final String BOOL_VARIABLE = "Flag";
+
+    private static final String[] SIZE_PROPERTIES = {"width", "height"};
+    private static final String[] COLOR_PROPERTIES = {"color", "background-color"};
+    private static final String[] TAGS = {"p", "a", "div", "span", "li"};
+    private static final String INDENT = "  ";
+
+    private int rules = 100;
+    private int variables = 16;
+    private int nestingDepth = 1;
+    private int expressionLength = 3;
+    private double referenceRatio = 0.5;
+    private long seed = 42;
+
+    private Random random;
+
+    public WorkloadGenerator rules(int rules) {
+        this.rules = rules;
+        return this;
+    }
+
+    /**
+     * Number of global variables, spread evenly over pixel, scalar, color and boolean variables.
+     * At least one of each is always declared.
+     */
+    public WorkloadGenerator variables(int variables) {
+        this.variables = variables;
+        return this;
+    }
+
+    /**
+     * Depth of the if/else clauses inside every style rule, 0 means no if-clauses at all
+     */
+    public WorkloadGenerator nestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+        return this;
+    }
+
+    /**
+     * Number of operands in every width/height expression, 1 means a single literal or reference
+     */
+    public WorkloadGenerator expressionLength(int expressionLength) {
+        this.expressionLength = expressionLength;
+        return this;
+    }
+
+    /**
+     * Chance (0..1) that an operand is a variable reference instead of a literal
+     */
+    public WorkloadGenerator referenceRatio(double referenceRatio) {
+        this.referenceRatio = referenceRatio;
+        return this;
+    }
+
+    public WorkloadGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public String generate() {
+        StringBuilder builder = new StringBuilder();
+        generate(builder);
+        return builder.toString();
+    }
+
+    public void generate(Appendable out) {
+        random = new Random(seed);
+
+        try {
+            appendVariables(out);
+            for (int i = 0; i < rules; i++) appendStylerule(out, i);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void appendVariables(Appendable out) throws IOException {
+        for (int i = 0; i < variablesOfKind(0); i++) {
+            out.append(PIXEL_VARIABLE).append(String.valueOf(i)).append(" := ").append(pixelLiteral()).append(";\n");
+        }
+        for (int i = 0; i < variablesOfKind(1); i++) {
+            out.append(SCALAR_VARIABLE).append(String.valueOf(i)).append(" := ").append(scalarLiteral()).append(";\n");
+        }
+        for (int i = 0; i < variablesOfKind(2); i++) {
+            out.append(COLOR_VARIABLE).append(String.valueOf(i)).append(" := ").append(colorLiteral()).append(";\n");
+        }
+        for (int i = 0; i < variablesOfKind(3); i++) {
+            out.append(BOOL_VARIABLE).append(String.valueOf(i)).append(" := ").append(boolLiteral()).append(";\n");
+        }
+        out.append('\n');
+    }
+
+    private void appendStylerule(Appendable out, int index) throws IOException {
+        out.append(selector(index)).append(" {\n");
+        appendDeclarations(out, INDENT);
+        appendIfClause(out, INDENT, nestingDepth);
+        out.append("}\n\n");
+    }
+
+    private void appendIfClause(Appendable out, String indent, int depth) throws IOException {
+        if (depth <= 0) return;
+
+        out.append(indent).append("if[").append(condition()).append("] {\n");
+        appendDeclarations(out, indent + INDENT);
+        appendIfClause(out, indent + INDENT, depth - 1);
+        out.append(indent).append('}');
+
+        if (random.nextBoolean()) {
+            out.append(" else {\n");
+            appendDeclarations(out, indent + INDENT);
+            out.append(indent).append('}');
+        }
+        out.append('\n');
+    }
+
+    private void appendDeclarations(Appendable out, String indent) throws IOException {
+        out.append(indent).append(pick(SIZE_PROPERTIES)).append(": ").append(pixelExpression()).append(";\n");
+        out.append(indent).append(pick(COLOR_PROPERTIES)).append(": ").append(colorOperand()).append(";\n");
+    }
+
+    /*
+     The grammar has no operator precedence, so "a + b * c" is parsed as "(a + b) * c".
+     Keeping every add/subtract operand a pixel value and every multiplier a scalar
+     keeps the expression type correct regardless of how it is grouped.
+     */
+    private String pixelExpression() {
+        StringBuilder expression = new StringBuilder(pixelOperand());
+
+        for (int i = 1; i < expressionLength; i++) {
+            switch (random.nextInt(3)) {
+                case 0: expression.append(" + ").append(pixelOperand()); break;
+                case 1: expression.append(" - ").append(pixelOperand()); break;
+                default: expression.append(" * ").append(scalarOperand());
+            }
+        }
+
+        return expression.toString();
+    }
+
+    private String pixelOperand() {
+        return useReference() ? reference(PIXEL_VARIABLE, 0) : pixelLiteral();
+    }
+
+    private String scalarOperand() {
+        return useReference() ? reference(SCALAR_VARIABLE, 1) : scalarLiteral();
+    }
+
+    private String colorOperand() {
+        return useReference() ? reference(COLOR_VARIABLE, 2) : colorLiteral();
+    }
+
+    //The ASTListener only builds a condition for variable references, so literals are never used here
+    private String condition() {
+        return reference(BOOL_VARIABLE, 3);
+    }
+
+    private boolean useReference() {
+        return random.nextDouble() < referenceRatio;
+    }
+
+    private String reference(String prefix, int kind) {
+        return prefix + random.nextInt(variablesOfKind(kind));
+    }
+
+    private int variablesOfKind(int kind) {
+        //Four kinds of variables, the first kinds get the remainder
+        return Math.max(1, variables / 4 + (kind < variables % 4 ? 1 : 0));
+    }
+
+    private String selector(int index) {
+        switch (index % 3) {
+            case 0: return pick(TAGS);
+            case 1: return ".rule-" + index;
+            default: return "#block-" + index;
+        }
+    }
+
+    private String pixelLiteral() {
+        return random.nextInt(1000) + "px";
+    }
+
+    private String scalarLiteral() {
+        return String.valueOf(1 + random.nextInt(9));
+    }
+
+    private String colorLiteral() {
+        return String.format("#%06x", random.nextInt(0x1000000));
+    }
+
+    private String boolLiteral() {
+        return random.nextBoolean() ? "TRUE" : "FALSE";
+    }
+
+    private String pick(String[] options) {
+        return options[random.nextInt(options.length)];
+    }
+}
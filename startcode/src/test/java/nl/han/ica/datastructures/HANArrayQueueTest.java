@@ -0,0 +1,74 @@
+package nl.han.ica.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HANArrayQueueTest {
+
+	@Test
+	void testKeepsFifoOrderWhenWrappingAndGrowing() {
+		HANArrayQueue<Integer> queue = new HANArrayQueue<>(4);
+		List<Integer> dequeued = new ArrayList<>();
+
+		//Move the head to the middle of the array first, so the ring wraps before it grows
+		queue.enqueue(0);
+		queue.enqueue(1);
+		queue.enqueue(2);
+		dequeued.add(queue.dequeue());
+		dequeued.add(queue.dequeue());
+		for (int i = 3; i < 10; i++) queue.enqueue(i);
+
+		assertEquals(8, queue.getSize());
+		assertEquals(8, queue.getCapacity());
+		assertEquals(2, queue.peek());
+
+		while (!queue.isEmpty()) dequeued.add(queue.dequeue());
+		assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), dequeued);
+	}
+
+	@Test
+	void testEmptyQueueFails() {
+		HANArrayQueue<String> queue = new HANArrayQueue<>();
+		queue.enqueue("a");
+		queue.clear();
+
+		assertTrue(queue.isEmpty());
+		assertThrows(NoSuchElementException.class, queue::dequeue);
+	}
+
+	@Test
+	void testBoundedQueueHandsOffBetweenThreads() throws InterruptedException {
+		HANBoundedQueue<Integer> queue = new HANBoundedQueue<>(2);
+		List<Integer> consumed = new ArrayList<>();
+
+		Thread consumer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 1000; i++) consumed.add(queue.take());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+
+		for (int i = 0; i < 1000; i++) queue.put(i);
+		consumer.join(10_000);
+
+		assertFalse(consumer.isAlive());
+		assertEquals(1000, consumed.size());
+		for (int i = 0; i < 1000; i++) assertEquals(i, consumed.get(i));
+	}
+
+	@Test
+	void testBoundedQueueRejectsWhenFull() {
+		HANBoundedQueue<String> queue = new HANBoundedQueue<>(1);
+		queue.enqueue("a");
+
+		assertThrows(IllegalStateException.class, () -> queue.enqueue("b"));
+		assertEquals("a", queue.dequeue());
+	}
+}
@@ -0,0 +1,72 @@
+package nl.han.ica.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HANLinkedListTest {
+
+	IHANLinkedList<String> listOf(String... values) {
+		IHANLinkedList<String> list = new HANLinkedList<>();
+		for (String value : values) list.addLast(value);
+		return list;
+	}
+
+	List<String> contents(IHANLinkedList<String> list) {
+		List<String> values = new ArrayList<>();
+		list.forEach(values::add);
+		return values;
+	}
+
+	@Test
+	void testSizeFollowsEveryMutation() {
+		IHANLinkedList<String> list = listOf("b", "c");
+		list.addFirst("a");
+		list.insert(1, "x");
+		list.insert(99, "z");
+		assertEquals(5, list.getSize());
+
+		list.delete(1);
+		list.delete(3);
+		list.removeFirst();
+		assertEquals(2, list.getSize());
+		assertEquals(List.of("b", "c"), contents(list));
+
+		list.clear();
+		assertEquals(0, list.getSize());
+	}
+
+	@Test
+	void testTailIsKeptUpToDate() {
+		IHANLinkedList<String> list = listOf("a", "b", "c");
+		list.delete(2);
+		assertEquals("b", list.getLast());
+
+		list.addLast("d");
+		assertEquals("d", list.getLast());
+		assertEquals("d", list.get(2));
+
+		list.removeFirst();
+		list.removeFirst();
+		list.removeFirst();
+		list.addLast("e");
+		assertEquals("e", list.getFirst());
+		assertEquals("e", list.getLast());
+	}
+
+	@Test
+	void testIteratorWalksFromFirstToLast() {
+		IHANLinkedList<String> list = listOf("a", "b", "c");
+
+		Iterator<String> iterator = list.iterator();
+		for (int i = 0; i < list.getSize(); i++) {
+			assertTrue(iterator.hasNext());
+			assertEquals(list.get(i), iterator.next());
+		}
+		assertFalse(iterator.hasNext());
+	}
+}
@@ -0,0 +1,66 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.ArenaAST;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArenaCompilerTest {
+
+	@Test
+	void testArenaHoldsTheSameAST() throws IOException {
+		String generated = new WorkloadGenerator().rules(200).nestingDepth(3).seed(7).generate();
+
+		for (String icss : new String[] {Sheets.resource("level3.icss"), generated}) {
+			ArenaAST arena = ArenaCompiler.parse(icss, new ArrayList<>());
+
+			assertEquals(Sheets.parsed(icss).getAST(), arena.toAST());
+			assertEquals(Sheets.parsed(icss).getAST(), ArenaAST.of(arena.toAST()).toAST());
+		}
+	}
+
+	@Test
+	void testSameResultAsPipeline() throws IOException {
+		Sheets.assertSameResultAsPipeline((icss, css) -> new ArenaCompiler().compile(icss, css));
+	}
+
+	@Test
+	void testErrors() throws IOException {
+		String icss = "Size := 10px;\n\na {\n\twidth: Size;\n}\n\np {\n\tcolor: Size;\n}\n";
+		StringWriter css = new StringWriter();
+
+		assertEquals(Sheets.pipelineErrors(icss), new ArenaCompiler().compile(icss, css));
+		assertEquals("a {\n  width: 10px;\n}\n\n", css.toString());
+
+		icss = "p {\n\tcolor: Missing;\n}\n\na {\n\twidth 10px;\n}\n#";
+		assertEquals(Sheets.pipelineErrors(icss), new ArenaCompiler().compile(icss, new StringWriter()));
+	}
+
+	@Test
+	void testSameErrorsAsPipeline() throws IOException {
+		Sheets.assertSameErrorsAsPipeline((icss, css) -> new ArenaCompiler().compile(icss, css));
+	}
+
+	@Test
+	void testRemoveLastSubtree() {
+		ArenaAST arena = new ArenaAST();
+		int stylesheet = arena.add(ArenaAST.NONE, ArenaAST.STYLESHEET, 0);
+		int first = arena.add(stylesheet, ArenaAST.STYLERULE, 0);
+		arena.add(first, ArenaAST.TAG_SELECTOR, "p");
+		int second = arena.add(stylesheet, ArenaAST.STYLERULE, 0);
+		arena.add(second, ArenaAST.TAG_SELECTOR, "a");
+
+		assertThrows(IllegalStateException.class, () -> arena.removeLast(first));
+		assertThrows(IllegalStateException.class, () -> arena.add(first, ArenaAST.DECLARATION, 0));
+
+		arena.removeLast(second);
+		assertEquals(3, arena.size());
+		assertEquals(ArenaAST.NONE, arena.nextSibling(first));
+		assertEquals("p", arena.text(arena.firstChild(first)));
+	}
+}
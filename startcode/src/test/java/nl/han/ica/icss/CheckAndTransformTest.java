@@ -0,0 +1,36 @@
+package nl.han.ica.icss;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckAndTransformTest {
+
+	void assertSameAsSeparateStages(String icss) {
+		Pipeline separate = Sheets.parsed(icss);
+		boolean checked = separate.check();
+		if (checked) separate.transform();
+
+		Pipeline fused = Sheets.parsed(icss);
+		assertEquals(checked, fused.checkAndTransform(), icss);
+		assertEquals(separate.getErrors(), fused.getErrors(), icss);
+		if (checked) assertEquals(separate.generate(), fused.generate(), icss);
+	}
+
+	@Test
+	void testSameResultAsSeparateStages() throws IOException {
+		for (String name : Sheets.LEVELS) {
+			assertSameAsSeparateStages(Sheets.resource(name));
+		}
+	}
+
+	@Test
+	void testSameErrorsAsSeparateStages() {
+		for (String icss : ErrorSheets.all()) {
+			assertFalse(Sheets.parsed(icss).check(), icss);
+			assertSameAsSeparateStages(icss);
+		}
+	}
+}
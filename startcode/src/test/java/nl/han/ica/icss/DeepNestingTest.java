@@ -0,0 +1,88 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeepNestingTest {
+
+	static final int DEPTH = 100_000;
+
+	//p { if[Flag] { if[Flag] { ... { width: Width + 2px; } ... } } }
+	AST nestedIfClauses(String innermostReference) {
+		ArrayList<ASTNode> body = new ArrayList<>();
+		body.add(new Declaration("width").addChild(new AddOperation().addChild(new VariableReference(innermostReference)).addChild(new PixelLiteral(2))));
+
+		for (int i = 0; i < DEPTH; i++) {
+			ArrayList<ASTNode> outer = new ArrayList<>();
+			outer.add(new IfClause(new VariableReference("Flag"), body));
+			body = outer;
+		}
+
+		Stylesheet stylesheet = new Stylesheet();
+		stylesheet.addChild(new VariableAssignment().addChild(new VariableReference("Flag")).addChild(new BoolLiteral(true)));
+		stylesheet.addChild(new VariableAssignment().addChild(new VariableReference("Width")).addChild(new PixelLiteral(1)));
+		stylesheet.addChild(new Stylerule(new TagSelector("p"), body));
+		return new AST(stylesheet);
+	}
+
+	@Test
+	void testLongExpressionChain() {
+		StringBuilder icss = new StringBuilder("Width := 1px;\n\np {\n\twidth: ");
+		for (int i = 0; i < DEPTH / 4; i++) icss.append("Width + 2px * 3 + ");
+		icss.append("Width;\n}\n");
+
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss.toString());
+		assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+
+		Pipeline other = new Pipeline();
+		other.parseString(icss.toString());
+		assertEquals(other.getAST(), pipeline.getAST());
+		assertEquals(other.getAST().hashCode(), pipeline.getAST().hashCode());
+		assertFalse(pipeline.getAST().toString().isEmpty());
+
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		pipeline.transform();
+		assertEquals("p {\n  width: " + (DEPTH / 4 * 7 + 1) + "px;\n}\n\n", pipeline.generate());
+	}
+
+	@Test
+	void testDeeplyNestedIfClauses() {
+		AST ast = nestedIfClauses("Width");
+
+		assertEquals(nestedIfClauses("Width"), ast);
+		assertEquals(nestedIfClauses("Width").hashCode(), ast.hashCode());
+		assertNotEquals(nestedIfClauses("Height"), ast);
+		assertFalse(ast.toString().isEmpty());
+
+		new Checker().check(ast);
+		assertTrue(ast.getErrors().isEmpty());
+
+		new Evaluator().apply(ast);
+		assertEquals("p {\n  width: 3px;\n}\n\n", new Generator().generate(ast));
+	}
+
+	@Test
+	void testErrorInDeeplyNestedIfClause() {
+		AST ast = nestedIfClauses("Height");
+
+		new Checker().check(ast);
+		ArrayList<SemanticError> errors = ast.getErrors();
+		assertEquals("ERROR: Scope error: variable not defined in current scope.", errors.get(errors.size() - 1).toString());
+
+		ast.clearErrors();
+		assertTrue(ast.getErrors().isEmpty());
+	}
+}
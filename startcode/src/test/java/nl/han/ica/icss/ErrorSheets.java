@@ -0,0 +1,32 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Sheets with semantic errors, for comparing the passes that check while they evaluate with a separate check
+class ErrorSheets {
+
+	static List<String> all() {
+		List<String> sheets = new ArrayList<>(List.of(
+				//The type of a variable that is not declared yet is not the Checker's own error
+				".y {\n\tD := TRUE + D;\n}\n",
+				".y {\n\tA := 0px;\n}\n\nB := 3px + B;\n\np {\n\twidth: B;\n}\n",
+				"p {\n\tD := D * 2;\n\twidth: D;\n}\n",
+				"D := TRUE + D;\n\np {\n\twidth: D + 1px;\n}\n",
+				"p {\n\tif[Missing] {\n\t\twidth: 1px;\n\t}\n}\n",
+				"p {\n\tB := 5px;\n\twidth: B;\n}\n\nq {\n\twidth: B;\n}\n",
+				"Size := 10px;\n\np {\n\twidth: Size * Size;\n\tcolor: Size + #ffffff;\n}\n\na {\n\twidth: Size;\n}\n",
+				//A reference takes the type of the latest assignment, also when that is made in another scope
+				"X := 10px;\n\np {\n\tX := #ff0000;\n\tcolor: X;\n}\n\na {\n\twidth: X;\n}\n"
+		));
+
+		String generated = new WorkloadGenerator().rules(20).nestingDepth(2).seed(11).generate();
+		sheets.add("a {\n\tLate := 1px;\n}\n\n" + generated + "Late := #ffffff + Late;\n");
+		sheets.add(generated.replaceFirst("width: ", "width: Missing + "));
+		sheets.add(generated.replaceFirst("color: [^;]*;", "color: Size0;"));
+		sheets.add(generated.replaceFirst("\n\n", "\n\n.y {\n\tFresh := TRUE + Fresh;\n}\n\n"));
+		return sheets;
+	}
+}
@@ -0,0 +1,107 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalCompilerTest {
+
+	static final String SHEET = "LinkColor := #ff0000;\nParWidth := 500px;\nAdjustColor := TRUE;\nUseLinkColor := FALSE;\n\n"
+			+ "p {\n\twidth: ParWidth;\n\tif[AdjustColor] {\n\t\tif[UseLinkColor] {\n\t\t\tcolor: LinkColor;\n\t\t}\n\t}\n}\n\n"
+			+ "a {\n\tcolor: LinkColor;\n}\n\n"
+			+ "#menu {\n\twidth: ParWidth + 20px;\n}\n\n"
+			+ ".menu {\n\tbackground-color: #000000;\n}\n";
+
+	String fullCompile(String icss) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss);
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		pipeline.transform();
+		return pipeline.generate();
+	}
+
+	String incrementalCompile(Pipeline pipeline, String icss) {
+		pipeline.parseString(icss);
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		return pipeline.transformAndGenerateIncrementally();
+	}
+
+	@Test
+	void testChangedVariableReevaluatesOnlyItsUsers() {
+		Pipeline pipeline = new Pipeline();
+		IncrementalCompiler compiler = pipeline.getIncrementalCompiler();
+
+		assertEquals(fullCompile(SHEET), incrementalCompile(pipeline, SHEET));
+		assertEquals(4, compiler.getEvaluated());
+
+		String edited = SHEET.replace("#ff0000", "#00ff00");
+		assertEquals(fullCompile(edited), incrementalCompile(pipeline, edited));
+		//p and a use LinkColor, #menu and .menu do not
+		assertEquals(2, compiler.getEvaluated());
+		assertEquals(2, compiler.getReused());
+
+		edited = edited.replace("500px", "400px");
+		assertEquals(fullCompile(edited), incrementalCompile(pipeline, edited));
+		assertEquals(2, compiler.getEvaluated());
+
+		assertEquals(fullCompile(edited), incrementalCompile(pipeline, edited));
+		assertEquals(0, compiler.getEvaluated());
+		assertEquals(4, compiler.getReused());
+	}
+
+	@Test
+	void testEditedRuleIsReevaluated() {
+		Pipeline pipeline = new Pipeline();
+		incrementalCompile(pipeline, SHEET);
+
+		String edited = SHEET.replace("#000000", "#111111");
+		assertEquals(fullCompile(edited), incrementalCompile(pipeline, edited));
+		assertEquals(1, pipeline.getIncrementalCompiler().getEvaluated());
+	}
+
+	@Test
+	void testVariableAssignedInsideRulePropagates() {
+		//Assignments in an if clause are visible to the rules after it
+		String sheet = "Wide := TRUE;\nSize := 10px;\n\n"
+				+ "p {\n\tif[Wide] {\n\t\tSize := 20px;\n\t}\n\twidth: Size;\n}\n\n"
+				+ "a {\n\twidth: Size + 5px;\n}\n\n"
+				+ "b {\n\theight: 1px;\n}\n";
+		Pipeline pipeline = new Pipeline();
+		assertEquals(fullCompile(sheet), incrementalCompile(pipeline, sheet));
+
+		String edited = sheet.replace("Size := 20px", "Size := 30px");
+		assertEquals(fullCompile(edited), incrementalCompile(pipeline, edited));
+		assertEquals(2, pipeline.getIncrementalCompiler().getEvaluated());
+
+		//p assigns Size again, so a still sees the same value
+		edited = edited.replace("Size := 10px", "Size := 15px");
+		assertEquals(fullCompile(edited), incrementalCompile(pipeline, edited));
+		assertEquals(1, pipeline.getIncrementalCompiler().getEvaluated());
+	}
+
+	@Test
+	void testRandomVariableEditsMatchFullCompile() {
+		String sheet = new WorkloadGenerator().rules(40).variables(4).nestingDepth(2).seed(8).generate();
+		Random random = new Random(2);
+		Pipeline pipeline = new Pipeline();
+
+		for (int round = 0; round < 30; round++) {
+			int variable = random.nextInt(4);
+			switch (random.nextInt(3)) {
+				case 0:
+					sheet = sheet.replaceFirst(WorkloadGenerator.PIXEL_VARIABLE + variable + " := \\d+px", WorkloadGenerator.PIXEL_VARIABLE + variable + " := " + random.nextInt(1000) + "px");
+					break;
+				case 1:
+					sheet = sheet.replaceFirst(WorkloadGenerator.SCALAR_VARIABLE + variable + " := \\d+", WorkloadGenerator.SCALAR_VARIABLE + variable + " := " + random.nextInt(10));
+					break;
+				default:
+					sheet = sheet.replaceFirst(WorkloadGenerator.BOOL_VARIABLE + variable + " := \\w+", WorkloadGenerator.BOOL_VARIABLE + variable + " := " + (random.nextBoolean() ? "TRUE" : "FALSE"));
+			}
+
+			assertEquals(fullCompile(sheet), incrementalCompile(pipeline, sheet), "after round " + round);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCompilerTest {
+
+	Pipeline checked(String icss) {
+		Pipeline pipeline = Sheets.parsed(icss);
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		return pipeline;
+	}
+
+	@Test
+	void testSameResultAsPipeline() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			Sheets.assertSameResultAsPipeline((icss, css) -> {
+				Pipeline pipeline = Sheets.parsed(icss);
+				if (pipeline.check()) css.write(pipeline.transformAndGenerate(pool));
+				return pipeline.getErrors();
+			});
+
+			String icss = new WorkloadGenerator().rules(500).nestingDepth(3).seed(5).generate();
+			assertEquals(Sheets.pipelineCompile(icss), checked(icss).transformAndGenerate(pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testRulesSeeTheVariablesAssignedBeforeThem() {
+		String icss = "Size := 10px;\n\na {\n\twidth: Size;\n}\n\np {\n\tSize := 20px;\n\twidth: Size;\n}\n\n"
+				+ "b {\n\twidth: Size + 5px;\n}\n\nSize := 30px;\n\nq {\n\twidth: Size;\n}\n";
+
+		String css = checked(icss).transformAndGenerate(ForkJoinPool.commonPool());
+
+		assertEquals(Sheets.pipelineCompile(icss), css);
+		assertEquals("a {\n  width: 10px;\n}\n\np {\n  width: 20px;\n}\n\nb {\n  width: 25px;\n}\n\n"
+				+ "q {\n  width: 30px;\n}\n\n", css);
+	}
+
+	//Every assignment ends a batch of rules, which must not cost a pass over all variables
+	@Test
+	void testAlternatingAssignmentsAndRules() {
+		StringBuilder icss = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			icss.append("V").append(i).append(" := ").append(i).append("px;\n\np {\n\twidth: V").append(i).append(";\n}\n\n");
+		}
+
+		String css = checked(icss.toString()).transformAndGenerate(ForkJoinPool.commonPool());
+
+		assertEquals(Sheets.pipelineCompile(icss.toString()), css);
+		assertTrue(css.endsWith("p {\n  width: 19999px;\n}\n\n"));
+	}
+
+	@Test
+	void testOnlyACheckedSheetIsCompiled() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("p {\n\tcolor: Missing;\n}\n");
+		pipeline.check();
+
+		assertThrows(IllegalStateException.class, () -> pipeline.transformAndGenerate(ForkJoinPool.commonPool()));
+	}
+}
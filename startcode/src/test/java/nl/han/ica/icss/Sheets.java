@@ -0,0 +1,75 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//The level sheets and what the Pipeline makes of a sheet, for comparing the other compilation modes with it
+public class Sheets {
+
+	public static final List<String> LEVELS = List.of("level0.icss", "level1.icss", "level2.icss", "level3.icss");
+
+	public static String resource(String name) throws IOException {
+		try (InputStream in = Sheets.class.getClassLoader().getResourceAsStream(name)) {
+			assertNotNull(in, name);
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	public static Pipeline parsed(String icss) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss);
+		assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+		return pipeline;
+	}
+
+	static String pipelineCompile(String icss) {
+		Pipeline pipeline = parsed(icss);
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		pipeline.transform();
+		return pipeline.generate();
+	}
+
+	static List<String> pipelineErrors(String icss) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss);
+		if (pipeline.isParsed()) pipeline.check();
+		return pipeline.getErrors();
+	}
+
+	//Every level sheet and a generated one give the same errors as the Pipeline, or the same CSS when there are none
+	static void assertSameResultAsPipeline(Compiler compiler) throws IOException {
+		for (String name : LEVELS) assertSameResultAsPipeline(compiler, resource(name), name);
+
+		assertSameResultAsPipeline(compiler, new WorkloadGenerator().rules(200).nestingDepth(3).seed(4).generate(), "generated");
+	}
+
+	static void assertSameErrorsAsPipeline(Compiler compiler) throws IOException {
+		for (String icss : ErrorSheets.all()) {
+			List<String> errors = compiler.compile(icss, new StringWriter());
+
+			assertFalse(errors.isEmpty(), icss);
+			assertEquals(pipelineErrors(icss), errors, icss);
+		}
+	}
+
+	private static void assertSameResultAsPipeline(Compiler compiler, String icss, String name) throws IOException {
+		StringWriter css = new StringWriter();
+		List<String> errors = compiler.compile(icss, css);
+
+		assertEquals(pipelineErrors(icss), errors, name);
+		if (errors.isEmpty()) assertEquals(pipelineCompile(icss), css.toString(), name);
+	}
+
+	interface Compiler {
+		//The errors, the CSS goes to the writer when there are none
+		List<String> compile(String icss, Writer css) throws IOException;
+	}
+}
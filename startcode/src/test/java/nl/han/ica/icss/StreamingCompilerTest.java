@@ -0,0 +1,109 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCompilerTest {
+
+	@Test
+	void testSameResultAsPipeline() throws IOException {
+		Sheets.assertSameResultAsPipeline((icss, css) -> new StreamingCompiler().compile(new StringReader(icss), css));
+	}
+
+	@Test
+	void testSameCssAsPipelineFromInputStream() throws IOException {
+		String icss = new WorkloadGenerator().rules(200).nestingDepth(3).seed(4).generate();
+		StringWriter css = new StringWriter();
+
+		assertEquals(List.of(), new StreamingCompiler().compile(new ByteArrayInputStream(icss.getBytes(StandardCharsets.UTF_8)), css));
+		assertEquals(Sheets.pipelineCompile(icss), css.toString());
+	}
+
+	@Test
+	void testSemanticErrorsStopOutput() throws IOException {
+		String icss = "Size := 10px;\n\na {\n\twidth: Size;\n}\n\np {\n\tcolor: Size;\n}\n\nb {\n\twidth: Missing;\n}\n\nq {\n\theight: 1px;\n}\n";
+		StringWriter css = new StringWriter();
+
+		List<String> errors = new StreamingCompiler().compile(new StringReader(icss), css);
+
+		assertEquals(Sheets.pipelineErrors(icss), errors);
+		assertFalse(errors.isEmpty());
+		assertEquals("a {\n  width: 10px;\n}\n\n", css.toString());
+	}
+
+	@Test
+	void testSameErrorsAsPipeline() throws IOException {
+		Sheets.assertSameErrorsAsPipeline((icss, css) -> new StreamingCompiler().compile(new StringReader(icss), css));
+	}
+
+	@Test
+	void testOutputFailureIsThrown() {
+		Writer full = new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int length) throws IOException {
+				throw new IOException("No space left on device");
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		IOException e = assertThrows(IOException.class,
+				() -> new StreamingCompiler().compile(new StringReader("a {\n\twidth: 1px;\n}\n\np {\n\twidth: 2px;\n}\n"), full));
+		assertEquals("No space left on device", e.getMessage());
+	}
+
+	@Test
+	void testSyntaxErrorsAreReportedInsteadOfSemanticErrors() throws IOException {
+		String icss = "p {\n\tcolor: Missing;\n}\n\na {\n\twidth 10px;\n}\n#";
+
+		List<String> errors = new StreamingCompiler().compile(new StringReader(icss), new StringWriter());
+
+		assertEquals(Sheets.pipelineErrors(icss), errors);
+		assertTrue(errors.stream().allMatch(error -> error.startsWith("Syntax error")), errors.toString());
+	}
+
+	@Test
+	void testReaderIsReadIncrementally() throws IOException {
+		//A reader that produces a statement only when the previous one has been written out
+		int rules = 1000;
+		StringWriter css = new StringWriter();
+		Reader input = new Reader() {
+			int rule = 0;
+			String pending = "Size := 1px;\n";
+
+			@Override
+			public int read(char[] buffer, int offset, int length) {
+				if (pending.isEmpty()) {
+					if (rule == rules) return -1;
+					//Until the parser sees the next rule start the last one cannot be finished, allow one rule of slack
+					assertTrue(css.toString().split("}").length >= rule - 1, "read ahead of the output at rule " + rule);
+					pending = "p {\n\twidth: Size + " + rule++ + "px;\n}\n";
+				}
+
+				int count = Math.min(length, pending.length());
+				pending.getChars(0, count, buffer, offset);
+				pending = pending.substring(count);
+				return count;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		assertEquals(List.of(), new StreamingCompiler().compile(input, css));
+		assertTrue(css.toString().endsWith("p {\n  width: " + rules + "px;\n}\n\n"));
+	}
+}
@@ -0,0 +1,123 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ParserFactory;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SubtreeTableTest {
+
+	AST parse(String icss, SubtreeTable subtrees) {
+		return ParserFactory.parse(icss, (lexer, parser) -> {
+			ASTListener listener = new ASTListener(subtrees);
+			new IterativeParseTreeWalker().walk(listener, parser.stylesheet());
+			return listener.getAST();
+		});
+	}
+
+	AST parse(String icss) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss);
+		return pipeline.getAST();
+	}
+
+	@Test
+	void testEqualSubtreesAreShared() {
+		String icss = "Size := 10px;\n\np {\n\twidth: Size + 2px;\n\tcolor: #ff0000;\n}\n\n"
+				+ "a {\n\twidth: Size + 2px;\n\tcolor: #ff0000;\n}\n\np {\n\twidth: Size + 2px;\n\tcolor: #ff0000;\n}\n";
+		SubtreeTable subtrees = new SubtreeTable();
+		AST shared = parse(icss, subtrees);
+
+		assertEquals(parse(icss), shared);
+		assertEquals(parse(icss).hashCode(), shared.hashCode());
+		assertTrue(shared.root.isFrozen());
+
+		Stylerule p = (Stylerule) shared.root.body.get(1);
+		Stylerule a = (Stylerule) shared.root.body.get(2);
+		assertSame(p, shared.root.body.get(3));
+		assertSame(p.body.get(0), a.body.get(0));
+		assertSame(p.body.get(1), a.body.get(1));
+		assertNotSame(p.selectors.get(0), a.selectors.get(0));
+
+		assertSame(shared.root, parse(icss, subtrees).root);
+	}
+
+	@Test
+	void testInterningEqualTreeReturnsParsedTree() {
+		String icss = "Size := 10px;\n\np {\n\twidth: Size + 2px;\n\tcolor: #ff0000;\n}\n\na {\n\theight: Size;\n}\n";
+		SubtreeTable subtrees = new SubtreeTable();
+		AST parsed = parse(icss, subtrees);
+
+		Stylesheet built = new Stylesheet();
+		built.addChild((new VariableAssignment())
+				.addChild(new VariableReference("Size"))
+				.addChild(new PixelLiteral("10px")));
+		built.addChild((new Stylerule())
+				.addChild(new TagSelector("p"))
+				.addChild((new Declaration("width"))
+						.addChild((new AddOperation())
+								.addChild(new VariableReference("Size"))
+								.addChild(new PixelLiteral("2px"))))
+				.addChild((new Declaration("color"))
+						.addChild(new ColorLiteral("#ff0000"))));
+		built.addChild((new Stylerule())
+				.addChild(new TagSelector("a"))
+				.addChild((new Declaration("height"))
+						.addChild(new VariableReference("Size"))));
+
+		assertEquals(parse(icss), parsed);
+		assertEquals(new AST(built), parsed);
+		assertSame(parsed.root, subtrees.intern(built));
+		assertSame(parsed.root.body.get(1), subtrees.intern(built.body.get(1)));
+		assertNotSame(parsed.root, subtrees.intern(parse(icss.replace("height", "width")).root));
+	}
+
+	@Test
+	void testDifferentOperatorsAndPropertiesAreNotShared() {
+		String icss = "Size := 10px;\n\np {\n\twidth: Size + 2px;\n\theight: Size + 2px;\n}\n\n"
+				+ "a {\n\twidth: Size * 2px;\n\theight: Size - 2px;\n}\n";
+		AST shared = parse(icss, new SubtreeTable());
+
+		Stylerule p = (Stylerule) shared.root.body.get(1);
+		Stylerule a = (Stylerule) shared.root.body.get(2);
+		Declaration width = (Declaration) p.body.get(0);
+		Declaration height = (Declaration) p.body.get(1);
+		assertSame(width.expression, height.expression);
+		assertNotEquals(width, height);
+		assertNotEquals(width.property.hashCode(), height.property.hashCode());
+
+		Declaration multiplied = (Declaration) a.body.get(0);
+		Declaration subtracted = (Declaration) a.body.get(1);
+		assertNotEquals(width.expression, multiplied.expression);
+		assertNotEquals(height.expression, subtracted.expression);
+		assertNotEquals(width.expression.hashCode(), multiplied.expression.hashCode());
+		assertNotSame(width, multiplied);
+		assertNotEquals(parse(icss.replace("Size * 2px", "Size + 2px")), parse(icss));
+	}
+
+	@Test
+	void testFrozenSubtrees() {
+		String icss = new WorkloadGenerator().rules(100).nestingDepth(3).seed(3).generate();
+		AST frozen = parse(icss, new SubtreeTable());
+		AST other = parse(icss.replace("10px", "11px"));
+
+		assertEquals(parse(icss).hashCode(), frozen.hashCode());
+		assertNotEquals(other, frozen);
+		other.root.freeze();
+		assertNotEquals(other.hashCode(), frozen.hashCode());
+		assertNotEquals(other, frozen);
+
+		Declaration declaration = new Declaration();
+		declaration.addChild(new PropertyName("width"));
+		declaration.freeze();
+		assertThrows(IllegalStateException.class, () -> declaration.addChild(PixelLiteral.valueOf(10)));
+	}
+}
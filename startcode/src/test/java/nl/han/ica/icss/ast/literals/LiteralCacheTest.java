@@ -0,0 +1,95 @@
+package nl.han.ica.icss.ast.literals;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.Sheets;
+import nl.han.ica.icss.ast.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiteralCacheTest {
+
+	@Test
+	void testCommonValuesAreShared() {
+		assertSame(PixelLiteral.valueOf(10), PixelLiteral.valueOf("10px"));
+		assertSame(PercentageLiteral.valueOf(50), PercentageLiteral.valueOf("50%"));
+		assertSame(ScalarLiteral.valueOf(-3), ScalarLiteral.valueOf("-3"));
+		assertSame(BoolLiteral.TRUE, BoolLiteral.valueOf("TRUE"));
+		assertSame(BoolLiteral.FALSE, BoolLiteral.valueOf(false));
+		assertSame(ColorLiteral.valueOf("#ff0000"), ColorLiteral.valueOf("#ff0000"));
+
+		assertEquals(new PixelLiteral(100_000), PixelLiteral.valueOf(100_000));
+		assertNotEquals(PixelLiteral.valueOf(10), ScalarLiteral.valueOf(10));
+	}
+
+	@Test
+	void testParsedSheetSharesLiterals() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("Width := 10px;\n\np {\n\twidth: 10px;\n\tcolor: #ff0000;\n}\n\na {\n\tcolor: #ff0000;\n}\n");
+
+		VariableAssignment assignment = (VariableAssignment) pipeline.getAST().root.getChild(0);
+		Declaration width = (Declaration) ((Stylerule) pipeline.getAST().root.getChild(1)).body.get(0);
+		Declaration pColor = (Declaration) ((Stylerule) pipeline.getAST().root.getChild(1)).body.get(1);
+		Declaration aColor = (Declaration) ((Stylerule) pipeline.getAST().root.getChild(2)).body.get(0);
+
+		assertSame(assignment.expression, width.expression);
+		assertSame(pColor.expression, aColor.expression);
+
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		pipeline.transform();
+		assertEquals("p {\n  width: 10px;\n  color: #ff0000;\n}\n\na {\n  color: #ff0000;\n}\n\n", pipeline.generate());
+	}
+
+	List<Literal> literalsWithErrors(Pipeline pipeline) {
+		List<Literal> literals = new ArrayList<>();
+		new ASTWalker() {
+			@Override
+			protected boolean enter(ASTNode node) {
+				if (node instanceof Literal && node.hasError()) literals.add((Literal) node);
+				return true;
+			}
+		}.walk(pipeline.getAST().root);
+		return literals;
+	}
+
+	@Test
+	void testSharedLiteralsCannotHoldErrors() {
+		PixelLiteral shared = PixelLiteral.valueOf(10);
+
+		assertThrows(IllegalStateException.class, () -> shared.setError("Not allowed here."));
+		assertThrows(IllegalStateException.class, () -> BoolLiteral.TRUE.setError("Not allowed here."));
+		shared.clearError();
+		assertFalse(shared.hasError());
+	}
+
+	//Shared literals would carry an error into every sheet that uses the same value
+	@Test
+	void testCheckerReportsNoErrorsOnLiterals() throws IOException {
+		List<String> sheets = new ArrayList<>(List.of(
+				"p {\n\twidth: #ff0000;\n\tcolor: 10px;\n\theight: 2px * 3px;\n}\n",
+				"a {\n\twidth: 10px + 10%;\n\tcolor: #ff0000 * 2;\n}\n",
+				"A := TRUE + 1;\n\nSize := 10px;\n\nb {\n\tif[Size] {\n\t\twidth: 5;\n\t}\n}\n"));
+		for (String name : new String[] {"CH01.icss", "CH02.icss", "CH03.icss", "CH04.icss", "CH05.icss", "CH06.icss"}) {
+			sheets.add(Sheets.resource(name));
+		}
+
+		for (String icss : sheets) {
+			Pipeline sequential = Sheets.parsed(icss);
+			assertFalse(sequential.check(), icss);
+			assertEquals(List.of(), literalsWithErrors(sequential), icss);
+
+			Pipeline parallel = Sheets.parsed(icss);
+			assertFalse(parallel.check(ForkJoinPool.commonPool()), icss);
+			assertEquals(List.of(), literalsWithErrors(parallel), icss);
+
+			Pipeline fused = Sheets.parsed(icss);
+			assertFalse(fused.checkAndTransform(), icss);
+			assertEquals(List.of(), literalsWithErrors(fused), icss);
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package nl.han.ica.icss.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompilationCacheTest {
+
+	static final String SOURCE = "p {\n\twidth: 10px;\n}\n";
+
+	@TempDir
+	Path directory;
+
+	CompilationCache.Result compiled(String source) {
+		return new CompilationCache.Result(List.of(), "css for " + source);
+	}
+
+	@Test
+	void testHitSkipsCompiler() throws IOException {
+		CompilationCache cache = new CompilationCache(directory);
+		AtomicInteger compilations = new AtomicInteger();
+
+		CompilationCache.Result first = cache.compile(SOURCE, source -> { compilations.incrementAndGet(); return compiled(source); });
+		CompilationCache.Result second = cache.compile(SOURCE, source -> { compilations.incrementAndGet(); return compiled(source); });
+
+		assertEquals(1, compilations.get());
+		assertEquals(first.css, second.css);
+		assertEquals(first.errors, second.errors);
+	}
+
+	@Test
+	void testErrorsAreStored() throws IOException {
+		CompilationCache cache = new CompilationCache(directory);
+		cache.compile(SOURCE, source -> new CompilationCache.Result(List.of("ERROR: first", "ERROR: second"), null));
+
+		CompilationCache.Result result = new CompilationCache(directory).lookup(cache.keyFor(SOURCE));
+
+		assertEquals(List.of("ERROR: first", "ERROR: second"), result.errors);
+		assertNull(result.css);
+		assertFalse(result.succeeded());
+	}
+
+	@Test
+	void testOtherCompilerVersionMisses() throws IOException {
+		CompilationCache cache = new CompilationCache(directory, CompilationCache.DEFAULT_MAX_BYTES, "1");
+		CompilationCache newer = new CompilationCache(directory, CompilationCache.DEFAULT_MAX_BYTES, "2");
+		cache.compile(SOURCE, this::compiled);
+
+		assertNotEquals(cache.keyFor(SOURCE), newer.keyFor(SOURCE));
+		assertNull(newer.lookup(newer.keyFor(SOURCE)));
+	}
+
+	@Test
+	void testCorruptEntryIsAMiss() throws IOException {
+		CompilationCache cache = new CompilationCache(directory);
+		String key = cache.keyFor(SOURCE);
+		Files.write(directory.resolve(key + CompilationCache.ENTRY_EXTENSION), new byte[] {0, 0, 0, 1, 0});
+
+		assertNull(cache.lookup(key));
+		assertEquals("css for " + SOURCE, cache.compile(SOURCE, this::compiled).css);
+	}
+
+	@Test
+	void testOversizedLengthIsAMiss() throws IOException {
+		CompilationCache cache = new CompilationCache(directory);
+		String key = cache.keyFor(SOURCE);
+		//Format version 1, no errors, a CSS text claiming to be 2 GB long
+		Files.write(directory.resolve(key + CompilationCache.ENTRY_EXTENSION),
+				new byte[] {0, 0, 0, 1, 0, 0, 0, 0, 1, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff});
+
+		assertNull(cache.lookup(key));
+		assertFalse(Files.exists(directory.resolve(key + CompilationCache.ENTRY_EXTENSION)));
+	}
+
+	@Test
+	void testOversizedErrorCountIsAMiss() throws IOException {
+		CompilationCache cache = new CompilationCache(directory);
+		String key = cache.keyFor(SOURCE);
+		//Format version 1, claiming about 2 billion errors that are not there
+		Files.write(directory.resolve(key + CompilationCache.ENTRY_EXTENSION),
+				new byte[] {0, 0, 0, 1, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff});
+
+		assertNull(cache.lookup(key));
+		assertFalse(Files.exists(directory.resolve(key + CompilationCache.ENTRY_EXTENSION)));
+	}
+
+	@Test
+	void testResultTooLongToReadIsNotStored() throws IOException {
+		CompilationCache cache = new CompilationCache(directory, CompilationCache.DEFAULT_MAX_BYTES, "1", 100);
+		AtomicInteger compilations = new AtomicInteger();
+		String large = "x".repeat(101);
+
+		for (int i = 0; i < 2; i++) {
+			assertEquals(large, cache.compile(SOURCE, source -> {
+				compilations.incrementAndGet();
+				return new CompilationCache.Result(List.of(), large);
+			}).css);
+		}
+
+		assertEquals(2, compilations.get());
+		assertEquals(0, cache.getSize());
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(0, files.count());
+		}
+
+		cache.compile("fits", source -> new CompilationCache.Result(List.of(), "x".repeat(100)));
+		assertNotNull(cache.lookup(cache.keyFor("fits")));
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsed() throws IOException {
+		CompilationCache cache = new CompilationCache(directory, 4096, "1");
+		String large = "x".repeat(1000);
+
+		cache.compile("kept", source -> new CompilationCache.Result(List.of(), large));
+		Path kept = directory.resolve(cache.keyFor("kept") + CompilationCache.ENTRY_EXTENSION);
+		for (int i = 0; i < 10; i++) {
+			//Make every other entry look older than the one that keeps being used
+			Files.setLastModifiedTime(kept, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+			cache.compile("other " + i, source -> new CompilationCache.Result(List.of(), large));
+		}
+
+		assertTrue(cache.getSize() <= 4096);
+		assertNotNull(cache.lookup(cache.keyFor("kept")));
+		assertNull(cache.lookup(cache.keyFor("other 0")));
+	}
+
+	@Test
+	void testConcurrentStoresOfSameInput() throws Exception {
+		CompilationCache cache = new CompilationCache(directory);
+		Thread[] threads = new Thread[8];
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < 50; i++) {
+						String source = SOURCE + (i % 5);
+						assertEquals("css for " + source, cache.compile(source, this::compiled).css);
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+
+		assertEquals(List.of(), failures);
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(5, files.count());
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCheckerTest {
+
+	//Every tenth rule uses an undeclared variable and halfway the sheet a color replaces a pixel variable
+	String sheetWithErrors() {
+		String[] statements = new WorkloadGenerator().rules(400).nestingDepth(2).seed(11).generate().split("\n\n");
+		StringBuilder icss = new StringBuilder();
+
+		for (int i = 0; i < statements.length; i++) {
+			if (i == statements.length / 2) icss.append("Size0 := #123456;\n\n");
+			icss.append(i % 10 == 5 ? statements[i].replace("Size1", "Unknown") : statements[i]).append("\n\n");
+		}
+		return icss.toString();
+	}
+
+	List<String> usersOf(AST ast, DependencyGraph dependencies, String variable) {
+		List<ASTNode> statements = ast.root.getChildren();
+		List<String> users = new ArrayList<>();
+		for (ASTNode user : dependencies.getUsers(variable)) users.add(Integer.toString(statements.indexOf(user)));
+		return users;
+	}
+
+	@Test
+	void testSameErrorsAndDependenciesAsSequentialCheck() {
+		String icss = sheetWithErrors();
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			Pipeline sequential = new Pipeline();
+			sequential.parseString(icss);
+			Checker checker = new Checker();
+			checker.check(sequential.getAST());
+
+			Pipeline parallel = new Pipeline();
+			parallel.parseString(icss);
+			ParallelChecker parallelChecker = new ParallelChecker(pool);
+			parallelChecker.check(parallel.getAST());
+
+			assertFalse(sequential.getAST().getErrors().isEmpty());
+			assertTrue(parallelChecker.hasErrors());
+			assertEquals(sequential.getAST().getErrors().toString(), parallel.getAST().getErrors().toString());
+			assertEquals(sequential.getAST(), parallel.getAST());
+
+			for (String variable : new String[] {"Size0", "Size1", "Factor2", "Tint3", "Flag0", "Unknown"}) {
+				assertEquals(usersOf(sequential.getAST(), checker.getDependencies(), variable),
+						usersOf(parallel.getAST(), parallelChecker.getDependencies(), variable), variable);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void testRulesSeeTheGlobalsAssignedBeforeThem() {
+		String icss = "a {\n\twidth: Size;\n}\n\nSize := 10px;\n\np {\n\twidth: Size;\n\tSize := #ff0000;\n}\n\n"
+				+ "b {\n\twidth: Size;\n}\n\nSize := #00ff00;\n\nq {\n\twidth: Size;\n}\n";
+
+		Pipeline sequential = new Pipeline();
+		sequential.parseString(icss);
+		sequential.check();
+
+		Pipeline parallel = new Pipeline();
+		parallel.parseString(icss);
+		parallel.check(ForkJoinPool.commonPool());
+
+		assertEquals(sequential.getErrors(), parallel.getErrors());
+		assertEquals(List.of("ERROR: Width/height property must be assigned with a pixel literal.",
+				"ERROR: Scope error: variable not defined in current scope.",
+				"ERROR: Width/height property must be assigned with a pixel literal.",
+				"ERROR: Width/height property must be assigned with a pixel literal."), parallel.getErrors());
+	}
+
+	//Every global assignment changes the global scope the rules after it see, which must not cost a copy per rule
+	@Test
+	void testAlternatingAssignmentsAndRules() {
+		StringBuilder icss = new StringBuilder();
+		for (int i = 0; i < 20_000; i++) {
+			icss.append("V").append(i).append(" := ").append(i).append("px;\n\np {\n\twidth: V").append(i)
+					.append(i % 1000 == 0 ? " + V0;\n\tcolor: V" + i : "").append(";\n}\n\n");
+		}
+
+		Pipeline sequential = new Pipeline();
+		sequential.parseString(icss.toString());
+		sequential.check();
+
+		Pipeline parallel = new Pipeline();
+		parallel.parseString(icss.toString());
+		parallel.check(ForkJoinPool.commonPool());
+
+		assertEquals(20, sequential.getErrors().size());
+		assertEquals(sequential.getErrors(), parallel.getErrors());
+		assertEquals(sequential.getAST(), parallel.getAST());
+	}
+
+	//The Evaluator substitutes the latest value assigned in any scope, so the type has to come from there as well
+	@Test
+	void testReferencesTakeTheTypeOfTheLatestAssignment() {
+		String icss = "X := 10px;\n\np {\n\tX := #ff0000;\n\tcolor: X;\n}\n\na {\n\twidth: X;\n}\n";
+
+		Pipeline sequential = new Pipeline();
+		sequential.parseString(icss);
+		assertFalse(sequential.check());
+
+		Pipeline parallel = new Pipeline();
+		parallel.parseString(icss);
+		assertFalse(parallel.check(ForkJoinPool.commonPool()));
+
+		List<String> expected = List.of("ERROR: Width/height property must be assigned with a pixel literal.");
+		assertEquals(expected, sequential.getErrors());
+		assertEquals(expected, parallel.getErrors());
+	}
+
+	@Test
+	void testReferencesOutOfScopeOnlyReportTheScope() {
+		String scopeError = "ERROR: Scope error: variable not defined in current scope.";
+		String[] sheets = {
+				"p {\n\tB := 5px;\n\twidth: B;\n}\n\nq {\n\twidth: B;\n}\n",
+				"p {\n\tB := 5px;\n}\n\nX := B;\n\nq {\n\twidth: X + B;\n\tcolor: B;\n}\n",
+				"p {\n\tB := TRUE;\n}\n\nq {\n\tif[B] {\n\t\twidth: 1px;\n\t}\n}\n"
+		};
+		List<List<String>> expected = List.of(
+				List.of(scopeError),
+				List.of(scopeError, scopeError,
+						"ERROR: Color/background-color property must be assigned by a color literal.", scopeError),
+				List.of(scopeError));
+
+		for (int i = 0; i < sheets.length; i++) {
+			Pipeline sequential = new Pipeline();
+			sequential.parseString(sheets[i]);
+			assertFalse(sequential.check());
+
+			Pipeline parallel = new Pipeline();
+			parallel.parseString(sheets[i]);
+			assertFalse(parallel.check(ForkJoinPool.commonPool()));
+
+			assertEquals(expected.get(i), sequential.getErrors(), sheets[i]);
+			assertEquals(expected.get(i), parallel.getErrors(), sheets[i]);
+		}
+	}
+}
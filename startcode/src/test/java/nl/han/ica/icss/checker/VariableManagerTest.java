@@ -0,0 +1,101 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.VariableAssignment;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariableManagerTest {
+
+	VariableAssignment assignment(String name, Expression expression) {
+		VariableAssignment assignment = new VariableAssignment();
+		assignment.addChild(new VariableReference(name));
+		assignment.addChild(expression);
+		return assignment;
+	}
+
+	Operation operation(Operation operation, Expression lhs, Expression rhs) {
+		operation.addChild(lhs);
+		operation.addChild(rhs);
+		return operation;
+	}
+
+	@Test
+	void testTypesFollowTheDeclarations() {
+		VariableManager varManager = new VariableManager();
+		varManager.determineExpTypeOfVarAssignment(assignment("Size", PixelLiteral.valueOf(10)));
+
+		VariableReference size = new VariableReference("Size");
+		Operation product = operation(new MultiplyOperation(), ScalarLiteral.valueOf(2), size);
+		Operation sum = operation(new AddOperation(), product, PixelLiteral.valueOf(1));
+
+		assertEquals(ExpressionType.PIXEL, varManager.getExpressionType(sum));
+		assertEquals(ExpressionType.PIXEL, varManager.getExpressionType(product));
+
+		varManager.openScope();
+		varManager.determineExpTypeOfVarAssignment(assignment("Size", ColorLiteral.valueOf("#ffffff")));
+		assertEquals(ExpressionType.COLOR, varManager.getExpressionType(sum));
+		assertEquals(ExpressionType.COLOR, varManager.getExpressionType(size));
+
+		varManager.closeScope();
+		assertEquals(ExpressionType.COLOR, varManager.getExpressionType(size));
+		assertEquals(ExpressionType.COLOR, varManager.getVariableType("Size"));
+	}
+
+	@Test
+	void testForgottenTypesAreInferredAgain() {
+		VariableManager varManager = new VariableManager();
+		VariableReference missing = new VariableReference("Missing");
+		Operation sum = operation(new AddOperation(), missing, PixelLiteral.valueOf(1));
+
+		assertEquals(ExpressionType.UNDEFINED, varManager.getExpressionType(sum));
+		assertTrue(missing.hasError());
+
+		missing.clearError();
+		assertEquals(ExpressionType.UNDEFINED, varManager.getExpressionType(sum));
+		assertFalse(missing.hasError());
+
+		varManager.forgetExpressionTypes(sum);
+		assertEquals(ExpressionType.UNDEFINED, varManager.getExpressionType(sum));
+		assertTrue(missing.hasError());
+	}
+
+	@Test
+	void testCompactForgetsTypes() {
+		VariableManager varManager = new VariableManager();
+		varManager.determineExpTypeOfVarAssignment(assignment("Size", PixelLiteral.valueOf(10)));
+		assertEquals(ExpressionType.PIXEL, varManager.getExpressionType(new PixelLiteral(5000)));
+		assertEquals(1, varManager.getInferredTypeCount());
+
+		varManager.compact();
+		assertEquals(0, varManager.getInferredTypeCount());
+		assertEquals(ExpressionType.PIXEL, varManager.getVariableType("Size"));
+	}
+
+	//Streaming keeps one VariableManager for the whole sheet, it must not hold on to every evaluated expression
+	@Test
+	void testEvaluatedExpressionsAreForgotten() {
+		StringBuilder icss = new StringBuilder("A := 1px;\n\n");
+		for (int i = 0; i < 100; i++) icss.append("p {\n\twidth: 5000px;\n\theight: A + 5000px;\n\tcolor: #123456;\n}\n\n");
+
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss.toString());
+		VariableManager varManager = new VariableManager();
+		Checker checker = new Checker(varManager);
+		new Evaluator(varManager).checkAndApply(pipeline.getAST(), checker);
+
+		assertFalse(checker.hasErrors());
+		assertEquals(0, varManager.getInferredTypeCount());
+	}
+}
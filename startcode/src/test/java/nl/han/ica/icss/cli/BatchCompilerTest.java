@@ -0,0 +1,107 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCompilerTest {
+
+	static final String VALID = "p {\n\twidth: 10px;\n}\n";
+	static final String INVALID = "p {\n\twidth: Missing;\n}\n";
+
+	@TempDir
+	Path directory;
+
+	ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+	Path write(String name, String text) throws IOException {
+		Path path = directory.resolve(name);
+		Files.createDirectories(path.getParent());
+		return Files.writeString(path, text);
+	}
+
+	List<String> files() throws IOException {
+		try (Stream<Path> walk = Files.walk(directory)) {
+			return walk.filter(Files::isRegularFile)
+					.map(path -> directory.relativize(path).toString().replace('\\', '/'))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	boolean compileAll(boolean fused, boolean streaming) throws IOException {
+		return new BatchCompiler(2, fused, streaming, null, new PrintStream(report)).compileAll(List.of(directory));
+	}
+
+	@Test
+	void testCompilesEveryIcssFileBelowTheRoot() throws IOException {
+		write("a.icss", VALID);
+		write("nested/b.icss", new WorkloadGenerator().rules(10).seed(3).generate());
+		write("nested/deeper/c.icss", VALID);
+		write("nested/notes.txt", VALID);
+
+		assertTrue(compileAll(false, false), report.toString());
+
+		assertEquals(List.of("a.css", "a.icss", "nested/b.css", "nested/b.icss", "nested/deeper/c.css",
+				"nested/deeper/c.icss", "nested/notes.txt"), files());
+		assertEquals("p {\n  width: 10px;\n}\n\n", Files.readString(directory.resolve("a.css")));
+		assertEquals(BatchCompiler.compileText(Files.readString(directory.resolve("nested/b.icss")), false).css,
+				Files.readString(directory.resolve("nested/b.css")));
+		assertTrue(report.toString().contains("Compiled 3 files (0 failed)"), report.toString());
+	}
+
+	@Test
+	void testFileWithErrorsFailsTheBatchAndLeavesNoOutput() throws IOException {
+		for (boolean streaming : new boolean[] {false, true}) {
+			write("good.icss", VALID);
+			Path bad = write("bad.icss", INVALID);
+			write("bad.css", "p {\n  width: 1px;\n}\n\n");
+
+			assertFalse(compileAll(false, streaming), report.toString());
+
+			//The CSS of an earlier compilation is removed, no temporary files remain
+			assertEquals(List.of("bad.icss", "good.css", "good.icss"), files());
+			assertTrue(report.toString().contains(bad + ":"), report.toString());
+			assertTrue(report.toString().contains("(1 failed)"), report.toString());
+		}
+	}
+
+	@Test
+	void testOutputIsReplacedWhenCompiledAgain() throws IOException {
+		Path source = write("a.icss", VALID);
+		assertTrue(compileAll(true, false), report.toString());
+
+		Files.writeString(source, "a {\n\theight: 2px;\n}\n");
+		assertTrue(compileAll(true, false), report.toString());
+
+		assertEquals("a {\n  height: 2px;\n}\n\n", Files.readString(directory.resolve("a.css")));
+		assertEquals(List.of("a.css", "a.icss"), files());
+	}
+
+	static String deeplyNested(int depth) {
+		return "F := TRUE;\n\np {\n" + "if[F] {\n".repeat(depth) + "width: 1px;\n" + "}\n".repeat(depth) + "}\n";
+	}
+
+	@Test
+	void testStackOverflowFailsOnlyItsFile() throws IOException {
+		write("good.icss", VALID);
+		Path deep = write("deep.icss", deeplyNested(20_000));
+
+		assertFalse(compileAll(false, false), report.toString());
+
+		assertEquals(List.of("deep.icss", "good.css", "good.icss"), files());
+		assertTrue(report.toString().contains(deep + ":\n  " + BatchCompiler.TOO_DEEP_ERROR), report.toString());
+		assertTrue(report.toString().contains("Compiled 2 files (1 failed)"), report.toString());
+	}
+}
@@ -0,0 +1,204 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.cache.CompilationCache;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileDaemonTest {
+
+	//Where the daemons write their token files, instead of the home directory
+	@TempDir
+	Path tokens;
+
+	@Test
+	void testConcurrentClientsGetSameResultAsPipeline() throws Exception {
+		try (CompileDaemon daemon = new CompileDaemon(0, null, tokens)) {
+			daemon.start();
+
+			ExecutorService clients = Executors.newFixedThreadPool(4);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int client = 0; client < 4; client++) {
+					int seed = client;
+					futures.add(clients.submit(() -> {
+						try (DaemonClient connection = new DaemonClient(daemon.getPort(), tokens)) {
+							//Several requests over the same connection
+							for (int request = 0; request < 5; request++) {
+								String icss = new WorkloadGenerator().rules(20).nestingDepth(2).seed(seed * 10 + request).generate();
+								CompilationCache.Result expected = BatchCompiler.compileText(icss, false);
+								CompilationCache.Result actual = connection.compile(icss, request % 2 == 0);
+
+								assertEquals(expected.errors, actual.errors);
+								assertEquals(expected.css, actual.css);
+							}
+						}
+						return null;
+					}));
+				}
+				for (Future<?> future : futures) future.get();
+			} finally {
+				clients.shutdown();
+			}
+
+			try (DaemonClient client = new DaemonClient(daemon.getPort(), tokens)) {
+				assertTrue(client.status().contains("compilations: 20"), client.status());
+			}
+		}
+	}
+
+	@Test
+	void testBatchKeepsOneConnectionPerThread(@TempDir Path directory) throws IOException {
+		for (int i = 0; i < 12; i++) {
+			String icss = new WorkloadGenerator().rules(5).seed(i).generate();
+			Files.writeString(directory.resolve("sheet" + i + BatchCompiler.ICSS_EXTENSION), icss);
+		}
+
+		try (CompileDaemon daemon = new CompileDaemon(0, null, tokens);
+			 DaemonClient.Connections connections = new DaemonClient.Connections(startedPort(daemon), tokens, false)) {
+			boolean succeeded = new BatchCompiler(2, connections, new PrintStream(new ByteArrayOutputStream())).compileAll(List.of(directory));
+
+			assertTrue(succeeded);
+			assertTrue(connections.getOpenConnections() <= 2, "connections: " + connections.getOpenConnections());
+			assertTrue(daemon.getStatus().contains("compilations: 12"), daemon.getStatus());
+			for (int i = 0; i < 12; i++) {
+				String icss = Files.readString(directory.resolve("sheet" + i + BatchCompiler.ICSS_EXTENSION));
+				assertEquals(BatchCompiler.compileText(icss, false).css,
+						Files.readString(directory.resolve("sheet" + i + BatchCompiler.CSS_EXTENSION)));
+			}
+		}
+	}
+
+	@Test
+	void testErrorsAreReturned() throws IOException {
+		try (CompileDaemon daemon = new CompileDaemon(0, null, tokens);
+			 DaemonClient client = new DaemonClient(startedPort(daemon), tokens)) {
+			String icss = "p {\n\twidth: Missing;\n}\n";
+
+			CompilationCache.Result result = client.compile(icss, false);
+
+			assertFalse(result.succeeded());
+			assertNull(result.css);
+			assertEquals(BatchCompiler.compileText(icss, false).errors, result.errors);
+		}
+	}
+
+	@Test
+	void testStackOverflowFailsOnlyItsRequest() throws IOException {
+		try (CompileDaemon daemon = new CompileDaemon(0, null, tokens);
+			 DaemonClient client = new DaemonClient(startedPort(daemon), tokens)) {
+			CompilationCache.Result result = client.compile(BatchCompilerTest.deeplyNested(20_000), false);
+
+			assertEquals(List.of(BatchCompiler.TOO_DEEP_ERROR), result.errors);
+			assertTrue(client.compile("p {\n\twidth: 1px;\n}\n", false).succeeded());
+		}
+	}
+
+	@Test
+	void testShutdownStopsDaemon() throws Exception {
+		CompileDaemon daemon = new CompileDaemon(0, null, tokens);
+		int port = startedPort(daemon);
+
+		try (DaemonClient client = new DaemonClient(port, tokens)) {
+			client.shutdown();
+		}
+		daemon.awaitShutdown();
+
+		//Connecting to a free loopback port can connect the socket to itself, binding it shows the port is free
+		assertDoesNotThrow(() -> new ServerSocket(port, 50, InetAddress.getLoopbackAddress()).close());
+	}
+
+	@Test
+	void testOversizedStringIsRejected() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new DataOutputStream(bytes).writeInt(DaemonProtocol.MAX_STRING_BYTES + 1);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertThrows(StreamCorruptedException.class, () -> DaemonProtocol.readString(in));
+	}
+
+	@Test
+	void testOversizedErrorCountIsRejected() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new DataOutputStream(bytes).writeInt(Integer.MAX_VALUE);
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		assertThrows(EOFException.class, () -> DaemonProtocol.readResult(in));
+	}
+
+	@Test
+	void testOversizedRequestClosesOnlyItsConnection() throws IOException {
+		try (CompileDaemon daemon = new CompileDaemon(0, null, tokens)) {
+			int port = startedPort(daemon);
+
+			try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+				DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+				DaemonProtocol.writeHandshake(out, DaemonProtocol.readToken(DaemonProtocol.tokenFile(tokens, port)));
+				out.writeByte(DaemonProtocol.COMPILE);
+				out.writeBoolean(false);
+				out.writeInt(Integer.MAX_VALUE);
+				out.flush();
+
+				assertEquals(-1, socket.getInputStream().read());
+			}
+
+			try (DaemonClient client = new DaemonClient(port, tokens)) {
+				assertTrue(client.compile("p {\n\twidth: 1px;\n}\n", false).succeeded());
+			}
+		}
+	}
+
+	@Test
+	void testWrongTokenIsRejected() throws IOException {
+		try (CompileDaemon daemon = new CompileDaemon(0, null, tokens)) {
+			int port = startedPort(daemon);
+
+			try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+				DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+				DaemonProtocol.writeHandshake(out, new byte[DaemonProtocol.TOKEN_BYTES]);
+				out.writeByte(DaemonProtocol.SHUTDOWN);
+				out.flush();
+
+				assertEquals(-1, socket.getInputStream().read());
+			}
+
+			try (DaemonClient client = new DaemonClient(port, tokens)) {
+				assertTrue(client.status().startsWith("port: " + port), client.status());
+			}
+		}
+	}
+
+	@Test
+	void testTokenFileIsOnlyReadableByUser() throws IOException {
+		Path tokenFile;
+		try (CompileDaemon daemon = new CompileDaemon(0, null, tokens)) {
+			tokenFile = DaemonProtocol.tokenFile(tokens, daemon.getPort());
+
+			assertEquals(DaemonProtocol.TOKEN_BYTES, DaemonProtocol.readToken(tokenFile).length);
+			if (Files.getFileStore(tokenFile).supportsFileAttributeView("posix")) {
+				assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(tokenFile));
+			}
+		}
+		assertFalse(Files.exists(tokenFile));
+	}
+
+	int startedPort(CompileDaemon daemon) {
+		daemon.start();
+		return daemon.getPort();
+	}
+}
@@ -0,0 +1,65 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantFolderTest {
+
+	Expression widthOf(String expression) {
+		AST ast = new IncrementalParser(new BaseErrorListener()).parse("Factor := 2;\n\np {\n\twidth: " + expression + ";\n}\n");
+		return ((Declaration) ast.root.getChild(1).getChild(1)).expression;
+	}
+
+	List<String> errorsOf(String expression) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("p {\n\twidth: " + expression + ";\n}\n");
+		pipeline.check();
+		return pipeline.getErrors();
+	}
+
+	@Test
+	void testLiteralOnlyExpressionsBecomeLiterals() {
+		assertEquals(new PixelLiteral(50), widthOf("10px + 20px * 2"));
+		assertEquals(new PixelLiteral(-12), widthOf("2 * 3px - 3px * 2 * 3"));
+		assertEquals(new PercentageLiteral(25), widthOf("5% * 5"));
+
+		AST ast = new IncrementalParser(new BaseErrorListener()).parse("Size := 2 * 3 * 4;\n");
+		assertEquals(new ScalarLiteral(24), ((VariableAssignment) ast.root.getChild(0)).expression);
+	}
+
+	@Test
+	void testLiteralOnlyStartOfExpressionIsFolded() {
+		Expression expression = widthOf("1px + 2px * 3 + Factor");
+
+		assertTrue(expression instanceof AddOperation);
+		assertEquals(new PixelLiteral(7), ((Operation) expression).lhs);
+		assertEquals(new VariableReference("Factor"), ((Operation) expression).rhs);
+	}
+
+	@Test
+	void testSumThatIsStillMultipliedIsNotFolded() {
+		Expression expression = widthOf("1px + 2px * Factor");
+
+		assertTrue(expression instanceof MultiplyOperation);
+		assertTrue(((Operation) expression).lhs instanceof AddOperation);
+	}
+
+	@Test
+	void testTypeErrorsAreStillReported() {
+		assertTrue(widthOf("10px + 5%") instanceof AddOperation);
+		assertEquals(List.of("ERROR: TypeError: Cannot add or subtract with distinct literals."), errorsOf("10px + 20px + 5%"));
+		assertEquals(List.of("ERROR: TypeError: Cannot multiply with only non scalars"), errorsOf("2px * 3px"));
+		assertEquals(List.of("ERROR: TypeError: Cannot add or subtract with distinct literals."), errorsOf("1px + 2px + #ff0000"));
+	}
+}
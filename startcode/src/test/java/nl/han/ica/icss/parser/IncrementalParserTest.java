@@ -0,0 +1,201 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalParserTest {
+
+	static final String SHEET = "Width := 10px;\n\np {\n\twidth: Width;\n}\n\n.menu {\n\tcolor: #ff0000;\n}\n\n#footer {\n\theight: 20px;\n}\n";
+
+	String resource(String name) throws IOException {
+		try (InputStream in = getClass().getClassLoader().getResourceAsStream(name)) {
+			assertNotNull(in, name);
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	AST fullParse(String text) {
+		return new IncrementalParser(new BaseErrorListener()).parse(text);
+	}
+
+	@Test
+	void testEditInsideRuleReparsesOnlyThatRule() {
+		IncrementalParser parser = new IncrementalParser(new BaseErrorListener());
+		parser.parse(SHEET);
+		ASTNode first = parser.getAST().root.getChild(0);
+		ASTNode last = parser.getAST().root.getChild(3);
+
+		int at = SHEET.indexOf("#ff0000");
+		String edited = SHEET.substring(0, at) + "#00ff00" + SHEET.substring(at + 7);
+		IncrementalParser.Splice splice = parser.update(edited, TextChange.replace(at, at + 7, 7));
+
+		assertNotNull(splice);
+		assertEquals(2, splice.index);
+		assertEquals(1, splice.removed);
+		assertEquals(1, splice.added);
+		assertSame(first, parser.getAST().root.getChild(0));
+		assertSame(last, parser.getAST().root.getChild(3));
+		assertEquals(fullParse(edited), parser.getAST());
+	}
+
+	@Test
+	void testInsertingStatementBetweenRules() {
+		IncrementalParser parser = new IncrementalParser(new BaseErrorListener());
+		parser.parse(SHEET);
+
+		int at = SHEET.indexOf(".menu");
+		String inserted = "a {\n\theight: Width;\n}\n\n";
+		String edited = SHEET.substring(0, at) + inserted + SHEET.substring(at);
+		IncrementalParser.Splice splice = parser.update(edited, null);
+
+		assertNotNull(splice);
+		assertEquals(5, parser.getAST().root.getChildCount());
+		assertEquals(fullParse(edited), parser.getAST());
+	}
+
+	@Test
+	void testSyntaxErrorFallsBackToFullParse() {
+		IncrementalParser parser = new IncrementalParser(new BaseErrorListener());
+		parser.parse(SHEET);
+
+		int at = SHEET.indexOf("height");
+		String broken = SHEET.substring(0, at) + SHEET.substring(at + 7);
+
+		assertNull(parser.update(broken, null));
+		assertNull(parser.update(SHEET, null));
+		assertNotNull(parser.update(SHEET.replace("20px", "30px"), null));
+		assertEquals(fullParse(SHEET.replace("20px", "30px")), parser.getAST());
+	}
+
+	//The ASTListener fails on some of the trees ANTLR recovers, e.g. on an assignment cut short by a comment
+	@Test
+	void testSyntaxErrorInRegionIsNotBuilt() throws IOException {
+		String text = resource("level1.icss");
+		IncrementalParser parser = new IncrementalParser(new BaseErrorListener());
+		parser.parse(text);
+
+		String broken = text.replace("AdjustColor := TRUE;", "AdjustColor := //");
+		assertNotEquals(text, broken);
+		assertNull(parser.update(broken, null));
+		assertEquals(fullParse(broken), parser.getAST());
+
+		assertNull(parser.update(text, null));
+		assertEquals(fullParse(text), parser.getAST());
+	}
+
+	@Test
+	void testRandomEditsMatchFullParse() {
+		String[] snippets = {"", " ", "\n", "1", "px", ";", "}", "{", "Width", "p { width: 5px; }", "X := 3;", "if[TRUE] {", "*"};
+		Random random = new Random(5);
+		String text = new WorkloadGenerator().rules(20).nestingDepth(2).seed(3).generate();
+
+		IncrementalParser parser = new IncrementalParser(new BaseErrorListener());
+		parser.parse(text);
+
+		for (int round = 0; round < 300; round++) {
+			//Combine a few edits into one change like the editor does between two parses
+			TextChange change = null;
+			for (int edits = 1 + random.nextInt(3); edits > 0; edits--) {
+				int start = random.nextInt(text.length() + 1);
+				int end = Math.min(text.length(), start + random.nextInt(8));
+				String snippet = snippets[random.nextInt(snippets.length)];
+
+				text = text.substring(0, start) + snippet + text.substring(end);
+				change = change == null ? TextChange.replace(start, end, snippet.length()) : change.then(start, end, snippet.length());
+			}
+
+			AST expected;
+			try {
+				expected = fullParse(text);
+			} catch (RuntimeException e) {
+				//The listener cannot build an AST from every broken input, neither can the update
+				String broken = text;
+				TextChange brokenChange = change;
+				assertThrows(RuntimeException.class, () -> parser.update(broken, brokenChange));
+				continue;
+			}
+
+			parser.update(text, random.nextBoolean() ? change : null);
+			assertEquals(expected, parser.getAST(), "after round " + round);
+			assertEquals(expected.toString(), parser.getAST().toString(), "after round " + round);
+		}
+	}
+
+	@Test
+	void testSllFirstMatchesFullLl() {
+		String[] snippets = {"", "}", "{", ";", ":=", "+", "*", "#", "[", "if[TRUE] {", "else"};
+		Random random = new Random(9);
+		String text = new WorkloadGenerator().rules(10).nestingDepth(2).expressionLength(4).seed(2).generate();
+
+		for (int round = 0; round < 100; round++) {
+			int start = random.nextInt(text.length() + 1);
+			String broken = round == 0 ? text : text.substring(0, start) + snippets[random.nextInt(snippets.length)] + text.substring(start);
+
+			List<String> llErrors = new ArrayList<>();
+			List<String> sllErrors = new ArrayList<>();
+			AST ll = parseOrNull(new IncrementalParser(new ErrorRecorder(llErrors), false), broken);
+			AST sll = parseOrNull(new IncrementalParser(new ErrorRecorder(sllErrors), true), broken);
+
+			assertEquals(llErrors, sllErrors, "after round " + round);
+			//The AST of a broken text can miss children, only a clean one can be compared
+			if (llErrors.isEmpty()) assertEquals(ll, sll, "after round " + round);
+		}
+	}
+
+	AST parseOrNull(IncrementalParser parser, String text) {
+		try {
+			return parser.parse(text);
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	static class ErrorRecorder extends BaseErrorListener {
+
+		final List<String> errors;
+
+		ErrorRecorder(List<String> errors) {
+			this.errors = errors;
+		}
+
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+			errors.add(line + ":" + charPositionInLine + " " + msg);
+		}
+	}
+
+	@Test
+	void testMergedChangeCoversAllEdits() {
+		Random random = new Random(11);
+		String original = SHEET;
+		String text = original;
+		TextChange change = null;
+
+		for (int edits = 0; edits < 200; edits++) {
+			int start = random.nextInt(text.length() + 1);
+			int end = Math.min(text.length(), start + random.nextInt(5));
+			String snippet = "abc".substring(random.nextInt(4));
+
+			text = text.substring(0, start) + snippet + text.substring(end);
+			change = change == null ? TextChange.replace(start, end, snippet.length()) : change.then(start, end, snippet.length());
+
+			assertEquals(text.length() - original.length(), change.delta());
+			assertEquals(original.substring(0, change.start), text.substring(0, change.start));
+			assertEquals(original.substring(change.oldEnd), text.substring(change.newEnd));
+		}
+	}
+}
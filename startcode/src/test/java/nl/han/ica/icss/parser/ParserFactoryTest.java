@@ -0,0 +1,100 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.gen.ICSSParser;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParserFactoryTest {
+
+	static final String SHEET = "Width := 10px;\n\np {\n\twidth: Width + 2px * 3;\n}\n";
+	static final String BROKEN = "p {\n\twidth 10px;\n}\n";
+
+	@Test
+	void testReusesParserPerThread() throws InterruptedException {
+		ICSSParser first = ParserFactory.parse(SHEET, (lexer, parser) -> parser);
+		ICSSParser second = ParserFactory.parse(SHEET, (lexer, parser) -> parser);
+		assertSame(first, second);
+
+		AtomicReference<ICSSParser> other = new AtomicReference<>();
+		Thread thread = new Thread(() -> other.set(ParserFactory.parse(SHEET, (lexer, parser) -> parser)));
+		thread.start();
+		thread.join();
+		assertNotSame(first, other.get());
+	}
+
+	@Test
+	void testEveryParseStartsClean() {
+		AtomicInteger firstErrors = new AtomicInteger();
+		ParserFactory.parse(BROKEN, (lexer, parser) -> {
+			parser.addErrorListener(new CountingListener(firstErrors));
+			parser.setErrorHandler(new BailErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+			return null;
+		});
+
+		AtomicInteger secondErrors = new AtomicInteger();
+		ParserFactory.parse(BROKEN, (lexer, parser) -> {
+			assertEquals(PredictionMode.LL, parser.getInterpreter().getPredictionMode());
+			assertTrue(parser.getErrorHandler() instanceof DefaultErrorStrategy);
+
+			parser.addErrorListener(new CountingListener(secondErrors));
+			return parser.stylesheet();
+		});
+
+		assertEquals(0, firstErrors.get());
+		assertEquals(1, secondErrors.get());
+	}
+
+	@Test
+	void testNestedParseGetsItsOwnParser() {
+		String inner = ParserFactory.parse(SHEET, (lexer, parser) -> {
+			String text = ParserFactory.parse(BROKEN, (innerLexer, innerParser) -> {
+				assertNotSame(parser, innerParser);
+				return innerParser.stylesheet().getText();
+			});
+			assertEquals(SHEET.replaceAll("\\s", "") + "<EOF>", parser.stylesheet().getText());
+			return text;
+		});
+
+		assertTrue(inner.startsWith("p{width"));
+	}
+
+	@Test
+	void testWarmUpAndClearDFACache() {
+		AST expected = new IncrementalParser(new BaseErrorListener()).parse(SHEET);
+
+		ParserFactory.warmUp();
+		ParserFactory.Metrics warm = ParserFactory.getMetrics();
+		assertTrue(warm.lexerDFAStates > 0, warm.toString());
+		assertTrue(warm.parserDFAStates > 0, warm.toString());
+
+		ParserFactory.clearDFACache();
+		ParserFactory.Metrics cleared = ParserFactory.getMetrics();
+		assertEquals(0, cleared.lexerDFAStates, cleared.toString());
+		assertEquals(0, cleared.parserDFAStates, cleared.toString());
+
+		assertEquals(expected, new IncrementalParser(new BaseErrorListener()).parse(SHEET));
+		assertTrue(ParserFactory.getMetrics().parserDFAStates > 0);
+	}
+
+	static class CountingListener extends BaseErrorListener {
+
+		final AtomicInteger errors;
+
+		CountingListener(AtomicInteger errors) {
+			this.errors = errors;
+		}
+
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+			errors.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.VariableAssignment;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+	Pipeline transformed(String icss) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss);
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		pipeline.transform();
+		return pipeline;
+	}
+
+	@Test
+	void testMultiplicationBeforeAddition() {
+		Pipeline pipeline = transformed("Width := 4px;\n\np {\n\twidth: Width + 2px * 4 * 3;\n\theight: 2 * Width - 1px;\n}\n");
+
+		assertEquals("p {\n  width: 28px;\n  height: 7px;\n}\n\n", pipeline.generate());
+	}
+
+	@Test
+	void testMultiplicationsAfterAnAddition() {
+		Pipeline pipeline = transformed("A := 2;\n\np {\n\twidth: 1px + 2px * A * 3;\n\theight: 4px + 2px * 4 * 3;\n}\n");
+
+		assertEquals("p {\n  width: 13px;\n  height: 28px;\n}\n\n", pipeline.generate());
+	}
+
+	@Test
+	void testOperandWithoutValue() {
+		Pipeline pipeline = transformed("C := TRUE * 0;\n\np {\n\twidth: 1px;\n}\n");
+
+		assertEquals(new ScalarLiteral(0), ((VariableAssignment) pipeline.getAST().root.getChild(0)).expression);
+		assertEquals("p {\n  width: 1px;\n}\n\n", pipeline.generate());
+	}
+}
@@ -0,0 +1,52 @@
+package nl.han.ica.icss.workload;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadGeneratorTest {
+
+	Pipeline compile(String icss) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(icss);
+		assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+		assertTrue(pipeline.check(), pipeline.getErrors().toString());
+		pipeline.transform();
+		return pipeline;
+	}
+
+	@Test
+	void testSameSeedGivesSameStylesheet() {
+		String first = new WorkloadGenerator().rules(50).seed(7).generate();
+		String second = new WorkloadGenerator().rules(50).seed(7).generate();
+		String other = new WorkloadGenerator().rules(50).seed(8).generate();
+
+		assertEquals(first, second);
+		assertNotEquals(first, other);
+	}
+
+	@Test
+	void testGeneratedStylesheetsAreValid() {
+		for (long seed = 0; seed < 20; seed++) {
+			String icss = new WorkloadGenerator()
+					.rules(30)
+					.variables((int) seed)
+					.nestingDepth((int) (seed % 4))
+					.expressionLength(1 + (int) (seed % 6))
+					.referenceRatio(seed / 20.0)
+					.seed(seed)
+					.generate();
+
+			String css = compile(icss).generate();
+			assertFalse(css.isEmpty());
+		}
+	}
+
+	@Test
+	void testRuleCountMatchesSettings() {
+		String css = compile(new WorkloadGenerator().rules(250).nestingDepth(0).generate()).generate();
+
+		assertEquals(250, css.chars().filter(c -> c == '{').count());
+	}
+}